@@ -0,0 +1,91 @@
+package org.zerock.b01.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 목록 응답/요청 DTO : PageResponseDTO 생성, PageRequestDTO.getTypes()/getLink(), JSON 직렬화
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PageDTOBenchmark {
+
+    @Param({"10", "50"})
+    private int size;
+
+    private PageRequestDTO pageRequestDTO;
+
+    private List<BoardListAllDTO> dtoList;
+
+    private PageResponseDTO<BoardListAllDTO> responseDTO;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+
+        pageRequestDTO = PageRequestDTO.builder().page(7).size(size).type("tcw").keyword("검색어").build();
+
+        dtoList = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+
+            List<BoardImageDTO> images = List.of(
+                    BoardImageDTO.builder().uuid("uuid-" + i + "-0").fileName("a.jpg").ord(0).build(),
+                    BoardImageDTO.builder().uuid("uuid-" + i + "-1").fileName("b.jpg").ord(1).build());
+
+            dtoList.add(BoardListAllDTO.builder()
+                    .bno(1000L - i)
+                    .title("title " + i)
+                    .writer("user" + (i % 10))
+                    .regDate(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i))
+                    .replyCount((long) i)
+                    .boardImages(images)
+                    .build());
+        }
+
+        responseDTO = buildResponse();
+
+        // 스프링 부트의 기본 ObjectMapper와 같은 날짜 처리
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public PageResponseDTO<BoardListAllDTO> buildResponse() {
+
+        return PageResponseDTO.<BoardListAllDTO>withAll()
+                .pageRequestDTO(pageRequestDTO)
+                .dtoList(dtoList)
+                .total(12345L)
+                .build();
+    }
+
+    @Benchmark
+    public String[] getTypes() {
+        return pageRequestDTO.getTypes();
+    }
+
+    // getLink()는 결과를 필드에 저장하므로 매번 새 PageRequestDTO를 만든다.
+    @Benchmark
+    public String getLink() {
+        return PageRequestDTO.builder().page(7).size(size).type("tcw").keyword("검색어").build().getLink();
+    }
+
+    @Benchmark
+    public PageRequestDTO getLinkBaseline() {
+        return PageRequestDTO.builder().page(7).size(size).type("tcw").keyword("검색어").build();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(responseDTO);
+    }
+}
@@ -0,0 +1,28 @@
+package org.zerock.b01.repository.search;
+
+import com.querydsl.core.BooleanBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// BoardSearchImpl의 검색 조건(BooleanBuilder) 생성 : 검색 종류 조합별 (모든 목록 조회가 사용하는 searchCondition)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchConditionBenchmark {
+
+    @Param({"t", "c", "w", "tc", "tw", "cw", "tcw"})
+    private String type;
+
+    private String[] types;
+
+    @Setup
+    public void setup() {
+        types = type.split("");
+    }
+
+    @Benchmark
+    public BooleanBuilder searchCondition() {
+        return BoardSearchImpl.searchCondition(types, "검색어");
+    }
+}
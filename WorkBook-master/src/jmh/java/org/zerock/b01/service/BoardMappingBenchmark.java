@@ -0,0 +1,58 @@
+package org.zerock.b01.service;
+
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.zerock.b01.config.RootConfig;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.dto.BoardDTO;
+import org.zerock.b01.mapper.BoardMapper;
+import org.zerock.b01.support.TimeOrderedUuid;
+
+import java.util.concurrent.TimeUnit;
+
+// Board -> BoardDTO 변환 : ModelMapper(리플렉션) / BoardService.toDTO(직접 작성) / MapStruct(생성 코드)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardMappingBenchmark {
+
+    private ModelMapper modelMapper;
+
+    private BoardMapper boardMapper;
+
+    private Board board;
+
+    @Setup
+    public void setup() {
+
+        modelMapper = new RootConfig().getMapper();
+        boardMapper = Mappers.getMapper(BoardMapper.class);
+
+        board = Board.builder()
+                .bno(100L)
+                .title("benchmark title")
+                .content("benchmark content ".repeat(20))
+                .writer("user00")
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            board.addImage(TimeOrderedUuid.next().toString(), "file" + i + ".jpg");
+        }
+    }
+
+    @Benchmark
+    public BoardDTO modelMapper() {
+        return modelMapper.map(board, BoardDTO.class);
+    }
+
+    @Benchmark
+    public BoardDTO entityToDTO() {
+        return BoardService.toDTO(board); // entityToDTO()가 사용하는 변환
+    }
+
+    @Benchmark
+    public BoardDTO mapStruct() {
+        return boardMapper.toDTO(board);
+    }
+}
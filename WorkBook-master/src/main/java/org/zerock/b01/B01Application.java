@@ -3,8 +3,11 @@ package org.zerock.b01;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableJpaAuditing // BaseEntity의 regdate/moddate (검색 색인 동기화가 moddate를 사용한다.)
+@EnableScheduling // 검색 색인 스냅샷 등 주기 작업용
 public class B01Application {
 
     public static void main(String[] args) {
@@ -0,0 +1,60 @@
+package org.zerock.b01.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.support.AfterCommit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * (검색 종류, 키워드)별 게시물 개수 캐시.
+ * 게시물이 등록/수정/삭제되면 어떤 검색 결과의 개수가 바뀌었는지 알 수 없으므로 전체를 비운다.
+ */
+@Component
+public class BoardCountCache {
+
+    private final Cache<String, Long> cache;
+
+    public BoardCountCache(@Value("${org.zerock.count-cache.ttl:60s}") Duration ttl,
+                           @Value("${org.zerock.count-cache.max-size:10000}") long maxSize) {
+
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public long get(String[] types, String keyword, LongSupplier counter) {
+        return cache.get(key(types, keyword), key -> counter.getAsLong());
+    }
+
+    public Long getIfPresent(String[] types, String keyword) {
+        return cache.getIfPresent(key(types, keyword));
+    }
+
+    public void put(String[] types, String keyword, long count) {
+        cache.put(key(types, keyword), count);
+    }
+
+    // 게시물 등록/수정/삭제가 커밋된 후에 비운다. (커밋 전에 비우면 그 사이에 다른 요청이 이전 개수를 다시 채운다.)
+    public void invalidateAll() {
+        AfterCommit.run(cache::invalidateAll);
+    }
+
+    // "ct"와 "tc"는 같은 검색이므로 정렬해서 키를 만든다.
+    private String key(String[] types, String keyword) {
+
+        if (types == null || types.length == 0 || keyword == null) {
+            return "";
+        }
+
+        String[] sorted = types.clone();
+        Arrays.sort(sorted);
+
+        return String.join("", sorted) + ":" + keyword;
+    }
+}
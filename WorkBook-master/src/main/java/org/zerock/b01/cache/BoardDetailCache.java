@@ -0,0 +1,86 @@
+package org.zerock.b01.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.dto.BoardDTO;
+import org.zerock.b01.support.AfterCommit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * 게시물 조회(/board/read, /board/modify) 결과 캐시.
+ * 같은 bno를 동시에 조회하면 Caffeine이 한 번만 로딩하고 나머지는 그 결과를 기다린다.
+ * 크기는 대략적인 바이트 수(가중치)로 제한한다.
+ */
+@Component
+public class BoardDetailCache {
+
+    private static final int ENTRY_OVERHEAD = 256; // 객체 헤더, 날짜, 리스트 등 문자열 외의 대략적인 크기
+
+    private final Cache<Long, BoardDTO> cache;
+
+    public BoardDetailCache(@Value("${org.zerock.detail-cache.ttl:5m}") Duration ttl,
+                            @Value("${org.zerock.detail-cache.max-weight:33554432}") long maxWeight,
+                            MeterRegistry meterRegistry) {
+
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maxWeight)
+                .weigher((Long bno, BoardDTO dto) -> weigh(dto))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "board.detail");
+    }
+
+    // 캐시된 객체를 호출하는 쪽에서 변경하지 못하도록 복사본을 반환한다.
+    public BoardDTO get(Long bno, Function<Long, BoardDTO> loader) {
+        return copy(cache.get(bno, loader));
+    }
+
+    // 게시물 수정/삭제(첨부파일 변경 포함)가 커밋된 후에 제거
+    // (로딩 중인 키를 제거하면 로딩이 끝날 때까지 기다렸다가 제거되므로 이전 값이 남지 않는다.)
+    public void invalidate(Long bno) {
+        AfterCommit.run(() -> cache.invalidate(bno));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static int weigh(BoardDTO dto) {
+
+        long chars = length(dto.getTitle()) + length(dto.getContent()) + length(dto.getWriter());
+
+        if (dto.getFileNames() != null) {
+            for (String fileName : dto.getFileNames()) {
+                chars += length(fileName) + 32;
+            }
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + chars * 2);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static BoardDTO copy(BoardDTO dto) {
+
+        return BoardDTO.builder()
+                .bno(dto.getBno())
+                .title(dto.getTitle())
+                .content(dto.getContent())
+                .writer(dto.getWriter())
+                .regDate(dto.getRegDate())
+                .modDate(dto.getModDate())
+                .fileNames(dto.getFileNames() == null ? null : new ArrayList<>(dto.getFileNames()))
+                .build();
+    }
+}
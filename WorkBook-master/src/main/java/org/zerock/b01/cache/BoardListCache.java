@@ -0,0 +1,213 @@
+package org.zerock.b01.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.dto.BoardListAllDTO;
+import org.zerock.b01.dto.CountMode;
+import org.zerock.b01.dto.PageRequestDTO;
+import org.zerock.b01.dto.PageResponseDTO;
+import org.zerock.b01.support.AfterCommit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 게시물 목록(/board/list) 페이지 결과 캐시.
+ * Caffeine의 크기 제한(W-TinyLFU)으로 자주 보는 앞쪽 페이지가 남고, 통계는 micrometer(board.list)로 확인한다.
+ * 쓰기가 있으면 전체를 비우지 않고 영향을 받는 페이지만 무효화한다.
+ *  - 게시물 내용/댓글 수 변경 : 해당 bno가 들어 있는 페이지
+ *  - 검색 결과에 게시물이 추가/제외 : 그 검색 조건의 모든 페이지 (순서와 전체 개수가 바뀐다)
+ */
+@Component
+@Log4j2
+public class BoardListCache {
+
+    private final Cache<ListKey, PageResponseDTO<BoardListAllDTO>> cache;
+
+    // bno -> 그 게시물이 들어 있는 캐시 키
+    private final ConcurrentHashMap<Long, Set<ListKey>> keysByBno = new ConcurrentHashMap<>();
+
+    // 무효화가 일어날 때마다 증가 (조회 도중에 무효화된 결과를 캐시에 남기지 않기 위해 사용)
+    private final AtomicLong generation = new AtomicLong();
+
+    public BoardListCache(@Value("${org.zerock.list-cache.max-size:1000}") long maxSize,
+                          @Value("${org.zerock.list-cache.ttl:10m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl) // 서비스를 거치지 않은 변경에 대한 안전장치
+                .recordStats()
+                .executor(Runnable::run) // 제거된 페이지를 바로 keysByBno에서 뺀다. (비동기면 새로 읽은 같은 페이지의 연결을 지울 수 있다.)
+                .removalListener((ListKey key, PageResponseDTO<BoardListAllDTO> value, RemovalCause cause) -> unlink(key, value))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "board.list");
+    }
+
+    public PageResponseDTO<BoardListAllDTO> get(PageRequestDTO pageRequestDTO,
+                                                Supplier<PageResponseDTO<BoardListAllDTO>> loader) {
+
+        ListKey key = ListKey.of(pageRequestDTO);
+
+        long before = generation.get();
+
+        PageResponseDTO<BoardListAllDTO> result = cache.get(key, k -> link(k, loader.get()));
+
+        if (generation.get() != before) { // 조회하는 동안 쓰기가 있었으면 이전 값일 수 있다.
+            cache.invalidate(key);
+        }
+        return result;
+    }
+
+    // 새 게시물 : 조건에 맞는 목록의 모든 페이지가 한 칸씩 밀린다.
+    public void registered(Board board) {
+
+        String[] doc = doc(board);
+
+        AfterCommit.run(() -> invalidateIf(key -> key.matches(doc)));
+    }
+
+    // 수정 : 검색 결과에 들어가거나 빠진 목록은 전체, 그대로인 목록은 그 게시물이 있는 페이지만
+    public void modified(Long bno, String[] before, Board board) {
+
+        String[] after = doc(board);
+
+        AfterCommit.run(() -> {
+            Set<ListKey> holding = keysByBno.getOrDefault(bno, Set.of());
+            invalidateIf(key -> key.matches(before) != key.matches(after) || holding.contains(key));
+        });
+    }
+
+    // 삭제 : 게시물이 속해 있던 목록의 모든 페이지 (뒤쪽 페이지가 당겨지고 전체 개수가 바뀐다)
+    public void removed(Long bno, String[] before) {
+
+        AfterCommit.run(() -> {
+            Set<ListKey> holding = keysByBno.getOrDefault(bno, Set.of());
+            invalidateIf(key -> (before != null && key.matches(before)) || holding.contains(key));
+        });
+    }
+
+    // 댓글 등록/삭제 : 댓글 수가 보이는 페이지만
+    public void replyChanged(Long bno) {
+
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            Set<ListKey> holding = keysByBno.get(bno);
+            if (holding != null) {
+                cache.invalidateAll(new ArrayList<>(holding));
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // 검색 조건 비교용 {title, content, writer}
+    public static String[] doc(Board board) {
+        return new String[]{lower(board.getTitle()), lower(board.getContent()), lower(board.getWriter())};
+    }
+
+    private void invalidateIf(Predicate<ListKey> predicate) {
+
+        generation.incrementAndGet();
+
+        List<ListKey> targets = cache.asMap().keySet().stream().filter(predicate).toList();
+
+        if (!targets.isEmpty()) {
+            log.debug("board list cache invalidate: " + targets.size() + " pages");
+            cache.invalidateAll(targets);
+        }
+    }
+
+    private PageResponseDTO<BoardListAllDTO> link(ListKey key, PageResponseDTO<BoardListAllDTO> value) {
+
+        List<BoardListAllDTO> dtoList = value.getDtoList();
+
+        if (dtoList != null) {
+            for (BoardListAllDTO dto : dtoList) {
+                keysByBno.computeIfAbsent(dto.getBno(), bno -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+        return value;
+    }
+
+    private void unlink(ListKey key, PageResponseDTO<BoardListAllDTO> value) {
+
+        if (key == null || value == null || value.getDtoList() == null) {
+            return;
+        }
+
+        PageResponseDTO<BoardListAllDTO> current = cache.asMap().get(key);
+
+        if (current != null && current != value) { // 같은 키로 이미 다시 읽은 페이지가 있으면 그 연결을 유지한다.
+            return;
+        }
+
+        for (BoardListAllDTO dto : value.getDtoList()) {
+            keysByBno.computeIfPresent(dto.getBno(), (bno, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+
+    // 같은 결과를 내는 요청이 같은 키가 되도록 정리한 PageRequestDTO (검색 종류는 정렬, 조건이 없으면 키워드 무시)
+    record ListKey(int page, int size, String types, String keyword, CountMode countMode) {
+
+        static ListKey of(PageRequestDTO pageRequestDTO) {
+
+            String[] types = pageRequestDTO.getTypes();
+            String keyword = pageRequestDTO.getKeyword();
+
+            String sorted = null;
+
+            if (types != null && types.length > 0 && keyword != null) {
+                String[] copy = types.clone();
+                Arrays.sort(copy);
+                sorted = String.join("", copy);
+            } else {
+                keyword = null;
+            }
+
+            return new ListKey(pageRequestDTO.getPage(), pageRequestDTO.getSize(), sorted,
+                    keyword == null ? null : keyword.toLowerCase(), pageRequestDTO.getCountMode());
+        }
+
+        // 이 목록의 검색 조건에 게시물이 포함되는지 (조건이 없으면 항상 포함)
+        boolean matches(String[] doc) {
+
+            if (types == null) {
+                return true;
+            }
+
+            for (char type : types.toCharArray()) {
+                int field = "tcw".indexOf(type);
+                if (field >= 0 && doc[field].contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package org.zerock.b01.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 목록 화면에서 많이 조회되는 섬네일(s_)을 힙 밖의 메모리(direct ByteBuffer)에 보관한다.
+ * 1MB 슬랩을 슬롯 크기(4KB ~ 128KB, 2의 거듭제곱)별로 나눠 쓰고, 슬랩 전체 크기는 budget을 넘지 않는다.
+ * 어떤 섬네일을 남길지는 Caffeine(W-TinyLFU)이 조회 빈도로 정하고, 밀려나거나 삭제된 항목의 슬롯은
+ * 그 내용을 전송 중인 요청이 모두 끝난 뒤에 다시 사용한다.
+ * 필요한 크기의 슬롯이 없으면 Caffeine의 가장 덜 사용된(coldest) 항목부터 제거해서 자리를 만든다.
+ * 파일 이름(s_해시.확장자)은 내용이 바뀌지 않으므로 만료 시간은 없고, 파일이 삭제될 때만 제거한다.
+ */
+@Component
+@Log4j2
+public class ThumbnailMemoryCache {
+
+    private static final int SLAB_SIZE = 1 << 20;
+
+    private static final int MIN_SLOT = 4 << 10;
+
+    private static final int MAX_SLOT = 128 << 10; // 이보다 큰 파일은 디스크에서 보낸다.
+
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SLOT / MIN_SLOT) + 1;
+
+    private static final int EVICTION_SCAN = 2 * SLAB_SIZE / MIN_SLOT; // 슬롯을 얻을 때까지 제거해 볼 최대 항목 수
+
+    private final long budget;
+
+    private final Cache<String, Entry> cache; // budget이 0이면 null (사용하지 않음)
+
+    // 슬롯 크기별 슬랩 목록, 빈 슬랩은 다른 크기로 다시 나눠 쓴다. (this로 동기화)
+    private final List<List<Slab>> slabs = new ArrayList<>();
+
+    private long slabBytes;
+
+    public ThumbnailMemoryCache(@Value("${org.zerock.upload.thumbnail.memory-cache.budget:64MB}") DataSize budget,
+                                MeterRegistry meterRegistry) {
+
+        this.budget = budget.toBytes() / SLAB_SIZE * SLAB_SIZE;
+
+        for (int i = 0; i < CLASSES; i++) {
+            slabs.add(new ArrayList<>());
+        }
+
+        if (this.budget == 0) {
+            this.cache = null;
+            return;
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(this.budget)
+                .weigher((String key, Entry entry) -> entry.slot.buffer.capacity())
+                .executor(Runnable::run) // 밀려난 슬롯을 바로 돌려받아야 다음 저장에 쓸 수 있다.
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.retire();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "thumbnail.memory");
+
+        Gauge.builder("upload.thumbnail.memory.bytes", this, ThumbnailMemoryCache::slabBytes)
+                .description("direct memory allocated for cached thumbnails")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 메모리에 있으면 내용을 고정(pin)해서 반환한다. 전송이 끝나면 반드시 close() (try-with-resources)
+     * 없으면 null
+     */
+    public Hit get(String key) {
+
+        if (cache == null) {
+            return null;
+        }
+
+        Entry entry = cache.getIfPresent(key);
+
+        return entry != null && entry.pin() ? new Hit(entry) : null;
+    }
+
+    // 디스크에서 보낸 섬네일을 메모리에 올린다. (공간이 없거나 너무 크면 무시)
+    public void offer(String key, Path file) {
+
+        if (cache == null || cache.asMap().containsKey(key)) {
+            return;
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+            if (!attributes.isRegularFile() || attributes.size() > MAX_SLOT) {
+                return;
+            }
+
+            int length = (int) attributes.size();
+
+            Slot slot = reserve(length);
+
+            if (slot == null) {
+                return;
+            }
+
+            if (!read(file, slot.buffer, length)) {
+                release(slot);
+                return;
+            }
+
+            // 읽는 사이에 파일이 삭제됐으면 (invalidate가 먼저 실행) 남겨 두지 않는다.
+            admit(key, new Entry(slot, length, attributes.lastModifiedTime().toMillis()), () -> Files.exists(file));
+
+        } catch (IOException e) {
+            log.warn("thumbnail memory cache load failed: " + file + " " + e.getMessage());
+        }
+    }
+
+    // 세그먼트 저장소(메모리 매핑)에서 보낸 섬네일을 올린다. present : 아직 저장소에 있는지
+    public void offer(String key, ByteBuffer data, long lastModified, BooleanSupplier present) {
+
+        if (cache == null || data.remaining() > MAX_SLOT || cache.asMap().containsKey(key)) {
+            return;
+        }
+
+        int length = data.remaining();
+
+        Slot slot = reserve(length);
+
+        if (slot == null) {
+            return;
+        }
+
+        slot.buffer.put(0, data, data.position(), length);
+
+        admit(key, new Entry(slot, length, lastModified), present);
+    }
+
+    private Slot reserve(int length) {
+
+        Slot slot = allocate(length);
+
+        if (slot == null) {
+            cache.cleanUp(); // 다른 스레드가 미뤄 둔 제거를 처리하고 한 번 더 시도
+            slot = allocate(length);
+        }
+        if (slot == null) {
+            slot = evictAndAllocate(length);
+        }
+        return slot;
+    }
+
+    // 무게(슬롯 크기 합계)가 budget 아래여도 필요한 크기의 빈 슬롯이 없을 수 있다. (슬랩이 모두 다른 크기로 나뉜 경우)
+    // 이때는 Caffeine이 제거하지 않으므로 가장 덜 사용된 항목부터 직접 제거하면서 다시 시도한다.
+    // 같은 슬롯 크기를 먼저 제거하고, 그래도 없으면 나머지를 제거해서 빈 슬랩을 만든다. (전송 중인 항목은 끝난 뒤 돌려받는다.)
+    private Slot evictAndAllocate(int length) {
+
+        int slotSize = MIN_SLOT << sizeClass(length);
+
+        List<Map.Entry<String, Entry>> victims = new ArrayList<>(
+                cache.policy().eviction().orElseThrow().coldest(EVICTION_SCAN).entrySet());
+
+        victims.sort(Comparator.comparing(victim -> victim.getValue().slot.buffer.capacity() != slotSize)); // 순서 유지
+
+        for (Map.Entry<String, Entry> victim : victims) {
+
+            cache.asMap().remove(victim.getKey(), victim.getValue()); // removalListener에서 바로 슬롯 반환
+
+            Slot slot = allocate(length);
+
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private void admit(String key, Entry entry, BooleanSupplier present) {
+
+        if (cache.asMap().putIfAbsent(key, entry) != null) {
+            entry.retire(); // 동시에 같은 섬네일을 올린 요청이 먼저 저장
+            return;
+        }
+
+        if (!present.getAsBoolean()) {
+            cache.asMap().remove(key, entry);
+        }
+    }
+
+    // 섬네일 파일 삭제 시 제거 (전송 중인 요청이 있으면 끝난 뒤 슬롯을 돌려받는다.)
+    public void invalidate(String key) {
+
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    public synchronized long slabBytes() {
+        return slabBytes;
+    }
+
+    private static boolean read(Path file, ByteBuffer slot, int length) throws IOException {
+
+        ByteBuffer target = slot.duplicate();
+        target.limit(length);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    return false; // 읽는 중에 파일이 짧아졌다.
+                }
+            }
+        }
+        return true;
+    }
+
+    // 크기에 맞는 슬롯 (position 0, capacity = 슬롯 크기), 예산을 다 썼으면 null
+    private synchronized Slot allocate(int length) {
+
+        int index = sizeClass(length);
+
+        for (Slab slab : slabs.get(index)) {
+            if (!slab.free.isEmpty()) {
+                return slab.take();
+            }
+        }
+
+        Slab slab;
+
+        if (slabBytes + SLAB_SIZE <= budget) {
+            slab = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE), MIN_SLOT << index);
+            slabBytes += SLAB_SIZE;
+        } else {
+            slab = reclaimEmptySlab(MIN_SLOT << index);
+        }
+
+        if (slab == null) {
+            return null;
+        }
+
+        slabs.get(index).add(slab);
+
+        return slab.take();
+    }
+
+    // 다른 크기에서 비어 있는 슬랩을 가져와 다시 나눈다.
+    private Slab reclaimEmptySlab(int slotSize) {
+
+        for (List<Slab> list : slabs) {
+            for (int i = 0; i < list.size(); i++) {
+                Slab slab = list.get(i);
+                if (slab.used == 0) {
+                    list.remove(i);
+                    return new Slab(slab.memory, slotSize);
+                }
+            }
+        }
+        return null;
+    }
+
+    private synchronized void release(Slot slot) {
+        slot.slab.give(slot.offset);
+    }
+
+    private static int sizeClass(int length) {
+
+        int slot = Math.max(MIN_SLOT, Integer.highestOneBit(Math.max(1, length - 1)) << 1);
+
+        return Integer.numberOfTrailingZeros(slot / MIN_SLOT);
+    }
+
+    // 같은 크기 슬롯으로 나눈 1MB direct 버퍼
+    private static final class Slab {
+
+        private final ByteBuffer memory;
+
+        private final int slotSize;
+
+        private final Deque<Integer> free = new ArrayDeque<>();
+
+        private int used;
+
+        private Slab(ByteBuffer memory, int slotSize) {
+            this.memory = memory;
+            this.slotSize = slotSize;
+            for (int offset = 0; offset + slotSize <= SLAB_SIZE; offset += slotSize) {
+                free.add(offset);
+            }
+        }
+
+        private Slot take() {
+            int offset = free.poll();
+            used++;
+            return new Slot(this, offset, memory.slice(offset, slotSize));
+        }
+
+        private void give(int offset) {
+            free.push(offset);
+            used--;
+        }
+    }
+
+    private record Slot(Slab slab, int offset, ByteBuffer buffer) {
+    }
+
+    // 캐시 항목 : 전송 중인 요청 수(pins)가 0이 될 때까지 슬롯을 돌려주지 않는다.
+    private final class Entry {
+
+        private final Slot slot;
+
+        private final int length;
+
+        private final long lastModified;
+
+        private int pins;
+
+        private boolean retired;
+
+        private Entry(Slot slot, int length, long lastModified) {
+            this.slot = slot;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        private synchronized boolean pin() {
+            if (retired) {
+                return false;
+            }
+            pins++;
+            return true;
+        }
+
+        private void unpin() {
+            boolean free;
+            synchronized (this) {
+                pins--;
+                free = retired && pins == 0;
+            }
+            if (free) {
+                release(slot);
+            }
+        }
+
+        private void retire() {
+            boolean free;
+            synchronized (this) {
+                if (retired) {
+                    return;
+                }
+                retired = true;
+                free = pins == 0;
+            }
+            if (free) {
+                release(slot);
+            }
+        }
+    }
+
+    // 조회 결과 : 다른 요청이 같은 항목을 제거해도 close() 전까지 내용이 유지된다.
+    public final class Hit implements AutoCloseable {
+
+        private final Entry entry;
+
+        private Hit(Entry entry) {
+            this.entry = entry;
+        }
+
+        // 읽기 전용 (position 0 ~ 파일 크기)
+        public ByteBuffer data() {
+            return entry.slot.buffer.asReadOnlyBuffer().limit(entry.length);
+        }
+
+        public long lastModified() {
+            return entry.lastModified;
+        }
+
+        @Override
+        public void close() {
+            entry.unpin();
+        }
+    }
+}
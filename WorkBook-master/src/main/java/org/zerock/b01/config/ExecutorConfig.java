@@ -0,0 +1,81 @@
+package org.zerock.b01.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    // 목록 조회 시 count 쿼리를 내용 조회와 동시에 (별도 커넥션으로) 실행하기 위한 실행기
+    // 스레드마다 커넥션을 하나씩 사용하므로 커넥션 풀의 절반을 넘지 않게 한다. (나머지는 요청 스레드의 내용 조회용)
+    // 큐가 가득 차면 호출한 스레드에서 실행 (순차 실행과 같아짐)
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService queryExecutor(@Value("${org.zerock.query.executor.threads:4}") int threads,
+                                         @Value("${org.zerock.query.executor.queue:200}") int queueSize,
+                                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+
+        int size = Math.max(1, Math.min(threads, poolSize / 2));
+
+        return new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory("query-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // 여러 파일 업로드 시 파일별 저장(해시 계산, 디스크 쓰기)을 동시에 처리 (I/O 작업이므로 가상 스레드 사용 가능)
+    // 큐가 가득 차면 업로드 요청 스레드에서 직접 처리
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor(@Value("${org.zerock.upload.executor.threads:8}") int threads,
+                                          @Value("${org.zerock.upload.executor.queue:100}") int queueSize) {
+
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory("upload-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // 업로드된 이미지의 섬네일 생성용 (CPU 작업이므로 일반 스레드를 코어 수만큼)
+    // 큐가 가득 차면 업로드 요청 스레드에서 직접 생성해서 업로드 속도를 늦춘다. (backpressure)
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor thumbnailExecutor(@Value("${org.zerock.upload.thumbnail.threads:0}") int threads,
+                                                @Value("${org.zerock.upload.thumbnail.queue:100}") int queueSize) {
+
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        return new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), platformThreadFactory("thumbnail-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // JDK 21 이상에서 실행되면 가상 스레드를, 그 외에는 일반 데몬 스레드를 만든다.
+    // (컴파일은 17 기준이므로 Thread.ofVirtual()은 리플렉션으로 호출)
+    static ThreadFactory threadFactory(String prefix) {
+
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+
+        } catch (ReflectiveOperationException e) {
+            return platformThreadFactory(prefix);
+        }
+    }
+
+    static ThreadFactory platformThreadFactory(String prefix) {
+
+        AtomicInteger sequence = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package org.zerock.b01.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.zerock.b01.service.BoardService;
+
+import java.util.List;
+import java.util.Map;
+
+// 관리용 API : 게시물 여러 개를 댓글/첨부파일과 함께 삭제
+// 인증이 없는 애플리케이션이므로 org.zerock.board.admin.enabled=true 일 때만 등록된다.
+@RestController
+@RequestMapping("/admin/boards")
+@Log4j2
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "org.zerock.board.admin.enabled", havingValue = "true")
+public class BoardAdminController {
+
+    private final BoardService boardService;
+
+    @Value("${org.zerock.board.remove.max-items:10000}")
+    private int removeMaxItems;
+
+    @Operation(summary = "게시물 일괄 삭제 (댓글, 첨부파일 포함)")
+    @PostMapping(value = "/remove", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Integer> removeAll(@RequestBody List<Long> bnos) {
+
+        if (bnos.size() > removeMaxItems) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "at most " + removeMaxItems + " boards per request");
+        }
+
+        log.info("remove boards.. " + bnos.size());
+
+        // 청크마다 커밋되므로 중간에 실패하면 앞의 청크는 삭제된 상태로 남는다. (같은 목록으로 다시 요청하면 된다.)
+        int removed = boardService.removeAll(bnos);
+
+        return Map.of("requested", bnos.size(), "removed", removed);
+    }
+}
@@ -4,8 +4,6 @@ package org.zerock.b01.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -17,10 +15,7 @@ import org.zerock.b01.dto.*;
 import org.zerock.b01.service.BoardService;
 
 import jakarta.validation.Valid;
-
-import java.io.File;
-import java.nio.file.Files;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 @Controller
 @RequestMapping("/board")
@@ -28,20 +23,26 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BoardController {
 
-    @Value("${org.zerock.upload.path}")
-    private String uploadPath;
-
     private final BoardService boardService;
 
+    // 이 페이지 번호를 넘으면 페이지 번호 대신 커서(after/before) 링크로 이동 (깊은 OFFSET 방지)
+    @Value("${org.zerock.board.list.cursor-after-page:10}")
+    private int cursorAfterPage;
+
     @GetMapping("/list")
     public void list(PageRequestDTO pageRequestDTO, Model model){
 
         // PageResponseDTO<BoardDTO> responseDTO = boardService.list(pageRequestDTO);
-        PageResponseDTO<BoardListAllDTO> responseDTO = boardService.listwithall(pageRequestDTO);
+        // after/before 파라미터가 있으면 커서 방식, 없으면 기존 페이지 번호 방식
+        PageResponseDTO<BoardListAllDTO> responseDTO = pageRequestDTO.isCursorMode()
+                ? boardService.listWithCursor(pageRequestDTO)
+                : boardService.listwithall(pageRequestDTO);
 
         log.info(responseDTO);
 
         model.addAttribute("responseDTO", responseDTO);
+        // 깊은 페이지에서는 화면의 첫/마지막 bno를 before/after로 넘겨 다음 조회부터 커서 방식으로 전환
+        model.addAttribute("cursorLinks", !pageRequestDTO.isCursorMode() && pageRequestDTO.getPage() > cursorAfterPage);
 
     }
 
@@ -121,13 +122,12 @@ public class BoardController {
         Long bno  = boardDTO.getBno();
         log.info("remove post.. " + bno);
 
-        boardService.remove(bno);
-
-        //게시물이 삭제되었다면 첨부 파일 삭제
-        log.info(boardDTO.getFileNames());
-        List<String> fileNames = boardDTO.getFileNames();
-        if(fileNames != null && fileNames.size() > 0){
-            removeFiles(fileNames);
+        // 댓글/첨부파일도 함께 삭제되고, 첨부파일의 실제 파일은 커밋 후 UploadReclaimer가 정리한다.
+        try {
+            boardService.remove(bno);
+        } catch (NoSuchElementException e) {
+            // 이미 삭제된 게시물 (삭제 버튼을 두 번 누른 경우 등) : 오류 화면 대신 목록으로
+            log.info("board already removed: " + bno);
         }
 
         redirectAttributes.addFlashAttribute("result", "removed");
@@ -136,30 +136,4 @@ public class BoardController {
 
     }
 
-    public void removeFiles(List<String> files){  //675 추가
-
-        for (String fileName:files) {
-            // import org.springframework.core.io.Resource
-            Resource resource = new FileSystemResource(uploadPath + File.separator + fileName);
-            String resourceName = resource.getFilename();
-
-
-            try {
-                String contentType = Files.probeContentType(resource.getFile().toPath());
-                resource.getFile().delete();
-
-                //섬네일이 존재한다면
-                if (contentType.startsWith("image")) {
-                    File thumbnailFile = new File(uploadPath + File.separator + "s_" + fileName);
-                    thumbnailFile.delete();
-                }
-
-            } catch (Exception e) {
-                log.error(e.getMessage());
-            }
-
-        }//end for
-    }
-
-
 }
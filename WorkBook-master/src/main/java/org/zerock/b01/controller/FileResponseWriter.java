@@ -0,0 +1,313 @@
+package org.zerock.b01.controller;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 첨부파일/섬네일 응답 전송.
+ * 업로드 파일명은 uuid로 시작해서 내용이 바뀌지 않으므로 1년 immutable 캐시, ETag/Last-Modified 조건부 요청(304)을 처리한다.
+ * Range 요청(단일/다중)을 지원하고, 본문은 톰캣 sendfile 또는 FileChannel.transferTo()로 보낸다.
+ * 메모리에 캐시된 섬네일(ThumbnailMemoryCache)도 같은 헤더 처리로 보낸다.
+ */
+@Component
+@Log4j2
+public class FileResponseWriter {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final int MAX_RANGES = 16; // 이보다 많으면 Range를 무시하고 전체를 보낸다.
+
+    // 톰캣 커넥터가 sendfile을 지원하면 요청 속성으로 알려준다. (응답 스트림을 거치지 않고 커널에서 전송)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public void write(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        write(new FileBody(file), file.getFileName().toString(), attributes.size(),
+                attributes.lastModifiedTime().toMillis(), request, response);
+    }
+
+    // 메모리에 있는 파일 내용 (data의 position ~ limit) 전송, 헤더는 같은 파일을 디스크에서 보낼 때와 같다.
+    public void write(ByteBuffer data, String fileName, long lastModified,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        write(new BufferBody(data), fileName, data.remaining(), lastModified, request, response);
+    }
+
+    private void write(Body body, String fileName, long length, long modified,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        long lastModified = modified / 1000 * 1000; // HTTP 날짜는 초 단위
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        String contentType = MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<long[]> ranges = ranges(request, etag, lastModified, length);
+
+        if (ranges == null) { // 만족할 수 없는 Range
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+
+        if (ranges.isEmpty()) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                body.send(0, length, request, response);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                body.send(start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        // 다중 Range : multipart/byteranges (각 부분 앞에 경계와 헤더)
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        if (head) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(partHeaders.get(i));
+            body.transfer(ranges.get(i)[0], ranges.get(i)[1] - ranges.get(i)[0] + 1, target);
+        }
+        out.write(closing);
+    }
+
+    // If-None-Match가 있으면 그것만 비교하고, 없을 때 If-Modified-Since를 비교한다. (RFC 9110)
+    private boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * Range 헤더를 [시작, 끝] (끝 포함) 목록으로 바꾼다.
+     * Range가 없거나, 형식이 잘못됐거나, If-Range가 맞지 않으면 빈 목록 (전체 전송). 만족할 수 없으면 null
+     */
+    private List<long[]> ranges(HttpServletRequest request, String etag, long lastModified, long length) {
+
+        String header = request.getHeader(HttpHeaders.RANGE);
+
+        if (header == null || !header.startsWith("bytes=")) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long date = dateHeader(request, HttpHeaders.IF_RANGE);
+            if (date == -1 || date != lastModified) {
+                return List.of(); // 파일이 바뀌었을 수 있으므로 전체를 보낸다.
+            }
+        }
+
+        List<long[]> result = new ArrayList<>();
+
+        for (String spec : header.substring(6).split(",")) {
+
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+
+            if (dash < 0) {
+                return List.of();
+            }
+
+            long start;
+            long end;
+
+            try {
+                if (dash == 0) { // "-500" : 마지막 500 바이트
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    end = dash == spec.length() - 1 ? length - 1 : Long.parseLong(spec.substring(dash + 1));
+                    if (end < start) {
+                        return List.of();
+                    }
+                    end = Math.min(end, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return List.of();
+            }
+
+            if (start < length) {
+                result.add(new long[]{start, end});
+            }
+        }
+
+        if (result.isEmpty()) {
+            return null;
+        }
+
+        return result.size() > MAX_RANGES ? List.of() : result;
+    }
+
+    private long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) { // 날짜 형식이 아님
+            return -1;
+        }
+    }
+
+    // 응답 본문 : 디스크 파일 또는 메모리 버퍼
+    private interface Body {
+
+        void transfer(long position, long count, WritableByteChannel target) throws IOException;
+
+        default void send(long start, long count, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+            transfer(start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private record FileBody(Path file) implements Body {
+
+        @Override
+        public void transfer(long position, long count, WritableByteChannel target) throws IOException {
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (count > 0) {
+                    long sent = channel.transferTo(position, count, target);
+                    if (sent <= 0) {
+                        break;
+                    }
+                    position += sent;
+                    count -= sent;
+                }
+            }
+        }
+
+        @Override
+        public void send(long start, long count, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, start + count); // 끝은 포함하지 않는다.
+                return;
+            }
+            Body.super.send(start, count, request, response);
+        }
+    }
+
+    private record BufferBody(ByteBuffer data) implements Body {
+
+        @Override
+        public void transfer(long position, long count, WritableByteChannel target) throws IOException {
+
+            ByteBuffer part = data.duplicate();
+            part.position(data.position() + (int) position);
+            part.limit(part.position() + (int) count);
+
+            while (part.hasRemaining()) {
+                target.write(part);
+            }
+        }
+    }
+}
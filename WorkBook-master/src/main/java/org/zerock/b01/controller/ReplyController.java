@@ -4,16 +4,21 @@ import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.zerock.b01.dto.PageRequestDTO;
 import org.zerock.b01.dto.PageResponseDTO;
+import org.zerock.b01.dto.ReplyBatchResultDTO;
 import org.zerock.b01.dto.ReplyDTO;
 import org.zerock.b01.service.ReplyService;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -28,6 +33,9 @@ public class ReplyController {
     private final ReplyService replyService;
     // @RequiredArgsConstructor 생성자 자동 주입
 
+    @Value("${org.zerock.reply.batch.max-items:10000}")
+    private int batchMaxItems;
+
 
     @Operation(summary = "댓글 등록")
     @PostMapping(value = "/", consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -57,11 +65,28 @@ public class ReplyController {
         return resultMap;
     }
 
+    @Operation(summary = "댓글 일괄 등록 (항목별 rno 또는 오류)")
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ReplyBatchResultDTO> registerAll(@RequestBody List<ReplyDTO> replyDTOList){
+
+        // 한 요청이 너무 크면 나눠서 보내도록 한다. (응답도 항목 수만큼 커진다.)
+        if (replyDTOList.size() > batchMaxItems) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "at most " + batchMaxItems + " replies per request");
+        }
+
+        // 검증 오류가 있는 항목만 실패하고 나머지는 등록된다.
+        return replyService.registerAll(replyDTOList);
+    }
+
     @Operation(summary = "Replies of Board")
     @GetMapping(value = "/list/{bno}")
     public PageResponseDTO<ReplyDTO> getList(@PathVariable("bno") Long bno, PageRequestDTO pageRequestDTO){
 
-        PageResponseDTO<ReplyDTO> responseDTO = replyService.getListOfBoard(bno, pageRequestDTO);
+        // after/before가 있으면 커서 방식 (깊은 OFFSET, count 쿼리 없음), 없으면 기존 페이지 번호 방식
+        PageResponseDTO<ReplyDTO> responseDTO = pageRequestDTO.isCursorMode()
+                ? replyService.getListOfBoardWithCursor(bno, pageRequestDTO)
+                : replyService.getListOfBoard(bno, pageRequestDTO);
 
         return responseDTO;
     }
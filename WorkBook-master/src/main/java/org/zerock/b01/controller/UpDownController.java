@@ -3,31 +3,47 @@ package org.zerock.b01.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import net.coobird.thumbnailator.Thumbnailator;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.zerock.b01.cache.ThumbnailMemoryCache;
 import org.zerock.b01.dto.upload.UploadFileDTO;
 import org.zerock.b01.dto.upload.UploadResultDTO;
+import org.zerock.b01.service.ImageVariantService;
+import org.zerock.b01.service.ThumbnailService;
+import org.zerock.b01.service.ThumbnailStore;
+import org.zerock.b01.service.UploadService;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 @RestController
 @Log4j2
+@RequiredArgsConstructor
 public class UpDownController {
 
-    @Value("${org.zerock.upload.path}")// import 시에 springframework으로 시작하는 Value
-    private String uploadPath; // application.properties에 경로 등록 필수
+    private final ThumbnailService thumbnailService; // 섬네일은 별도 스레드에서 생성
+
+    private final FileResponseWriter fileResponseWriter; // 파일 전송 (캐시 헤더, Range, 304)
+
+    private final UploadService uploadService; // 내용 해시 기준 저장소 (중복 제거, 참조 수)
+
+    private final ImageVariantService imageVariantService; // /view/{size}/ 크기별 이미지
+
+    private final ThumbnailMemoryCache thumbnailMemoryCache; // 목록 화면에서 자주 조회되는 섬네일
+
+    @Qualifier("uploadExecutor")
+    private final ExecutorService uploadExecutor; // 파일별 저장을 동시에 처리
 
     @Operation(summary =  "POST 방식으로 파일 등록")
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -42,90 +58,143 @@ public class UpDownController {
 
         if(uploadFileDTO.getFiles() != null){
 
-            final List<UploadResultDTO> list = new ArrayList<>();
+            // 파일별 저장을 uploadExecutor에서 동시에 처리하고, 결과는 요청한 파일 순서대로 모은다.
+            List<CompletableFuture<UploadResultDTO>> futures = uploadFileDTO.getFiles().stream()
+                    .map(multipartFile -> CompletableFuture
+                            .supplyAsync(() -> store(multipartFile), uploadExecutor)
+                            .exceptionally(e -> failed(multipartFile, e)))
+                    .toList();
 
-            uploadFileDTO.getFiles().forEach(multipartFile -> {
+            return futures.stream().map(CompletableFuture::join).toList();
+        }//end if
+
+        return null;
+    }
 
-                String originalName = multipartFile.getOriginalFilename();
-                log.info(originalName);
 
-                String uuid = UUID.randomUUID().toString();
+    // 내용이 같은 파일은 한 번만 저장되고, 섬네일은 thumbnailExecutor에서 생성
+    private UploadResultDTO store(MultipartFile multipartFile) {
 
-                Path savePath = Paths.get(uploadPath, uuid+"_"+ originalName);
+        log.info(multipartFile.getOriginalFilename());
+
+        try {
+            return uploadService.store(multipartFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-                boolean image = false;
+    // 한 파일의 실패가 다른 파일에 영향을 주지 않도록 파일별 결과에 오류를 담는다.
+    private UploadResultDTO failed(MultipartFile multipartFile, Throwable e) {
 
-                try {
-                    multipartFile.transferTo(savePath);
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
 
-                    //이미지 파일의 종류라면
-                    if(Files.probeContentType(savePath).startsWith("image")){
+        log.error("upload failed: " + multipartFile.getOriginalFilename() + " " + cause.getMessage());
 
-                        image = true;
+        return UploadResultDTO.builder()
+                .fileName(multipartFile.getOriginalFilename())
+                .error(cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage())
+                .build();
+    }
 
-                        File thumbFile = new File(uploadPath, "s_" + uuid+"_"+ originalName);
+    @Operation(summary = "GET 방식으로 섬네일 생성 상태 조회")
+    @GetMapping("/upload/status/{fileName}")
+    public Map<String, String> thumbnailStatus(@PathVariable String fileName){
 
-                        Thumbnailator.createThumbnail(savePath.toFile(), thumbFile, 200,200);
-                    }
+        // fileName : uuid_원본이름 (PENDING, READY, MISSING(조회 시 생성), NOT_FOUND)
+        return Map.of("status", thumbnailService.status(uploadService.storageName(fileName)).name());
+    }
 
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+    @Operation(summary =  "GET방식으로 첨부파일 조회")
+    @GetMapping("/view/{fileName}") // 608 추가
+    public void viewFileGET(@PathVariable String fileName,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-                list.add(UploadResultDTO.builder()
-                        .uuid(uuid)
-                        .fileName(originalName)
-                        .img(image).build()
-                );
+        if(fileName.startsWith("s_")){
+            viewThumbnail(uploadService.storageName(fileName.substring(2)), request, response);
+            return;
+        }
 
-            });//end each
+        // uuid_원본이름 -> 내용 해시로 저장된 실제 파일 (이전 방식 파일은 그대로)
+        Path file = uploadService.resolve(fileName);
 
-            return list;
-        }//end if
+        if(file == null){ // 업로드 폴더 밖의 파일 요청 차단
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-        return null;
+        // ETag/Last-Modified 조건부 요청, Range, 1년 캐시 헤더 처리 후 sendfile/transferTo로 전송
+        fileResponseWriter.write(file, request, response);
     }
 
+    // 섬네일 : 메모리 -> 섬네일 저장소(파일 또는 세그먼트) 순서로 찾고, 없으면 지금 생성
+    private void viewThumbnail(String storageName,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-    @Operation(summary =  "GET방식으로 첨부파일 조회")
-    @GetMapping("/view/{fileName}") // 608 추가
-    public ResponseEntity<Resource> viewFileGET(@PathVariable String fileName){
+        String key = "s_" + storageName;
+
+        // 메모리에 있는 섬네일은 디스크를 거치지 않고 보낸다. (헤더/304/Range 처리는 같다.)
+        try(ThumbnailMemoryCache.Hit hit = thumbnailMemoryCache.get(key)){
+            if(hit != null){
+                fileResponseWriter.write(hit.data(), key, hit.lastModified(), request, response);
+                return;
+            }
+        }
+
+        // 아직 만들어지지 않았으면 지금 생성 (진행 중인 작업이 있으면 기다린다.)
+        ThumbnailStore.Thumbnail thumbnail = thumbnailService.ensure(storageName);
+
+        if(thumbnail == null){
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if(thumbnail.file() != null){
+            fileResponseWriter.write(thumbnail.file(), request, response);
+        }else{
+            fileResponseWriter.write(thumbnail.data(), key, thumbnail.lastModified(), request, response);
+        }
+
+        // 자주 조회되는 섬네일만 남는다. (조회 빈도 기준으로 Caffeine이 결정)
+        if(response.getStatus() >= HttpServletResponse.SC_BAD_REQUEST){
+            return;
+        }
+        if(thumbnail.file() != null){
+            thumbnailMemoryCache.offer(key, thumbnail.file());
+        }else{
+            thumbnailMemoryCache.offer(key, thumbnail.data(), thumbnail.lastModified(),
+                    () -> thumbnailService.exists(storageName));
+        }
+    }
+
+    @Operation(summary = "GET 방식으로 크기별 이미지 조회 (긴 변 기준 size 픽셀)")
+    @GetMapping("/view/{size}/{fileName}")
+    public void viewVariantGET(@PathVariable int size, @PathVariable String fileName,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-        Resource resource = new FileSystemResource(uploadPath+File.separator + fileName);
-        String resourceName = resource.getFilename();
-        HttpHeaders headers = new HttpHeaders();
+        // 정해진 크기(org.zerock.upload.variant.sizes)만 허용, 섬네일(s_) 이름은 받지 않는다.
+        Path source = imageVariantService.isSupported(size) && !fileName.startsWith("s_")
+                ? uploadService.resolve(fileName) : null;
 
-        try{
-            headers.add("Content-Type", Files.probeContentType( resource.getFile().toPath() ));
-        } catch(Exception e){
-            return ResponseEntity.internalServerError().build();
+        // 처음 요청될 때 생성 (같은 변형의 동시 요청은 하나의 작업을 기다린다.)
+        Path variant = source == null ? null : imageVariantService.get(size, source);
+
+        if(variant == null){
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
-        return ResponseEntity.ok().headers(headers).body(resource);
+
+        fileResponseWriter.write(variant, request, response);
     }
 
     @Operation(summary = "DELETE 방식으로 파일 삭제")
     @DeleteMapping("/remove/{fileName}")  // 609 추가
     public Map<String,Boolean> removeFile(@PathVariable String fileName){
 
-        Resource resource = new FileSystemResource(uploadPath+File.separator + fileName);
-        String resourceName = resource.getFilename();
-
         Map<String, Boolean> resultMap = new HashMap<>();
-        boolean removed = false;
 
-        try {
-            String contentType = Files.probeContentType(resource.getFile().toPath());
-            removed = resource.getFile().delete();
-
-            //섬네일이 존재한다면
-            if(contentType.startsWith("image")){
-                File thumbnailFile = new File(uploadPath+File.separator +"s_" + fileName);
-                thumbnailFile.delete();
-            }
-
-        } catch (Exception e) {
-            log.error(e.getMessage());
-        }
+        // 같은 내용을 참조하는 업로드가 남아 있으면 실제 파일은 삭제하지 않는다.
+        boolean removed = uploadService.remove(fileName);
 
         resultMap.put("result", removed);
 
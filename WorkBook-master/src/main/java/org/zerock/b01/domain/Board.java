@@ -7,8 +7,10 @@ import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
 @Entity
+@Table(indexes = {@Index(name = "idx_board_moddate", columnList = "moddate")}) // 검색 색인 동기화 (BoardTextIndex)
 @Getter
 @Builder
 @AllArgsConstructor
@@ -17,8 +19,11 @@ import java.util.Set;
 public class Board extends BaseEntity{
 
     // 식별번호 / pk
+    // 시퀀스에서 50개씩 미리 받아 메모리에서 나눠 준다. (IDENTITY와 달리 insert를 JDBC batch로 묶을 수 있다.)
+    // 기존 행과 겹치지 않게 시작 값을 맞추는 작업은 IdSequenceAligner
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "board_seq")
+    @SequenceGenerator(name = "board_seq", sequenceName = "board_seq", allocationSize = 50)
     private Long bno;
 
     // 게시글 제목
@@ -33,6 +38,12 @@ public class Board extends BaseEntity{
     @Column(length = 50, nullable = false)
     private String writer;
 
+    // 댓글 수 : 목록 조회 시 댓글 테이블 조인/집계 대신 사용
+    // 엔티티 저장으로 덮어쓰지 않도록 updatable = false, 증감은 BoardRepository의 UPDATE 문으로만 처리
+    @Column(name = "reply_count", nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long replyCount = 0L;
+
     // 제목, 내용 변경하는 메서드
     public void change(String title, String content){
         this.title = title;
@@ -46,7 +57,7 @@ public class Board extends BaseEntity{
 
     public void addImage(String uuid, String fileName){
         BoardImage boardImage = BoardImage.builder()
-                .uuid(uuid)
+                .uuid(UUID.fromString(uuid))
                 .fileName(fileName)
                 .board(this)
                 .ord(imageSet.size())
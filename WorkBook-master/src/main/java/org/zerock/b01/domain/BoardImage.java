@@ -1,9 +1,14 @@
 package org.zerock.b01.domain;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
 
 @Entity
 @Getter
@@ -13,8 +18,11 @@ import lombok.*;
 @ToString(exclude = "board")
 public class BoardImage implements Comparable<BoardImage>{
 
+    // 업로드할 때 만든 시간 순서 UUID (TimeOrderedUuid), BINARY(16)으로 저장 (화면/파일 이름은 uuid_원본이름 문자열)
     @Id
-    private String uuid;
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID uuid;
 
     private String fileName;
 
@@ -0,0 +1,42 @@
+package org.zerock.b01.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+// 업로드 파일의 실제 내용 (SHA-256 해시 기준으로 한 번만 저장)
+// refCount : 이 내용을 가리키는 UploadFile 수, 0이 되면 행과 파일을 삭제한다.
+// 행의 추가/증감은 ContentBlobRepository의 네이티브 쿼리로만 처리 (동시 업로드 시 중복 키 방지)
+@Entity
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class ContentBlob extends BaseEntity {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // 첫 업로드 파일의 확장자 (섬네일 형식, Content-Type 결정용)
+    @Column(length = 20, nullable = false)
+    private String ext;
+
+    private long size;
+
+    private boolean image;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    // 업로드 폴더에 저장된 파일 이름 (섬네일은 "s_" + storageName)
+    public String getStorageName() {
+        return storageName(hash, ext);
+    }
+
+    public static String storageName(String hash, String ext) {
+        return ext.isEmpty() ? hash : hash + "." + ext;
+    }
+}
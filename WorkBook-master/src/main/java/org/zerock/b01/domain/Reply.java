@@ -3,11 +3,13 @@ import lombok.*;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "Reply", indexes = {@Index(name = "idx_reply_board_bno", columnList = "board_bno")}) // 537추가
+@Table(name = "Reply", indexes = {@Index(name = "idx_reply_board_rno", columnList = "board_bno, rno")}) // 537추가
 // 쿼리조건으로 자주사용되는 칼럼에는 인덱스를 생성
+// 게시물의 댓글을 rno 순서로 커서(after/before) 조회할 때 (board_bno, rno) 범위를 바로 찾는다.
+// (이전의 idx_reply_board_bno는 ddl-auto=update로 지워지지 않으므로 직접 삭제)
 // Hibernate:
-//    create index idx_reply_board_bno
-//       on reply (board_bno)
+//    create index idx_reply_board_rno
+//       on reply (board_bno, rno)
 @Getter
 @Builder
 @AllArgsConstructor
@@ -16,8 +18,10 @@ import jakarta.persistence.*;
 //@ToString
 public class Reply extends BaseEntity{
 
+    // Board.bno와 같은 방식 (reply_seq, 50개씩)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reply_seq")
+    @SequenceGenerator(name = "reply_seq", sequenceName = "reply_seq", allocationSize = 50)
     private Long rno;
 
     @ManyToOne(fetch = FetchType.LAZY) //fk 설정(지연로딩 : 필요한 순간까지 연결하지 않는다.)
@@ -33,8 +37,10 @@ public class Reply extends BaseEntity{
     }  // 552 추가
 
     //Hibernate:
+    //    create sequence reply_seq start with 1 increment by 50
+    //Hibernate: (새로 만들 때, 기존 테이블은 rno의 auto_increment 속성이 남지만 rno를 직접 넣으므로 사용되지 않는다. IdSequenceAligner 참고)
     //    create table reply (
-    //        rno bigint not null auto_increment,
+    //        rno bigint not null,
     //        moddate datetime(6),
     //        regdate datetime(6),
     //        reply_text varchar(255),
@@ -0,0 +1,31 @@
+package org.zerock.b01.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+// 업로드 한 건 (uuid_원본이름으로 조회/첨부) -> 내용은 ContentBlob(hash)
+// 이 테이블에 없는 uuid는 이전 방식(업로드 폴더에 uuid_원본이름 파일)으로 저장된 파일이다.
+@Entity
+@Table(indexes = {@Index(name = "idx_upload_file_hash", columnList = "hash")})
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class UploadFile extends BaseEntity {
+
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY) // BINARY(16), BoardImage.uuid와 같다.
+    @Column(length = 16)
+    private UUID uuid;
+
+    @Column(length = 64, nullable = false)
+    private String hash;
+
+    @Column(length = 500)
+    private String fileName;
+}
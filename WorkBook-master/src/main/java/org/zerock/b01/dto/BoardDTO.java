@@ -4,8 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.http.MediaTypeFactory;
 
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,6 +18,10 @@ import java.util.List;
 @NoArgsConstructor
 public class BoardDTO {
 
+    // 첨부파일 : 업로드 결과의 uuid + "_" + 원본 파일 이름
+    public static final String FILE_NAME_PATTERN =
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}_.+";
+
     private Long bno;
 
     @NotEmpty
@@ -32,5 +38,12 @@ public class BoardDTO {
 
     private LocalDateTime modDate;
 
-    private List<String> fileNames;
+    private List<@Pattern(regexp = FILE_NAME_PATTERN) String> fileNames;
+
+    // 첨부파일이 이미지인지 (파일 이름의 확장자로 판단, 업로드 시 섬네일 생성 여부와 같은 기준)
+    public static boolean isImage(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .map(mediaType -> "image".equals(mediaType.getType()))
+                .orElse(false);
+    }
 }
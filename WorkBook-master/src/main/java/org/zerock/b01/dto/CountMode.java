@@ -0,0 +1,11 @@
+package org.zerock.b01.dto;
+
+// 목록 조회 시 전체 개수를 구하는 방법
+public enum CountMode {
+
+    EXACT,      // 매번 count 쿼리 실행
+    CACHED,     // (검색 종류, 키워드)별로 개수를 캐시 (TTL, 게시물 등록/수정/삭제 시 초기화)
+    ESTIMATED,  // 검색 조건이 없는 목록은 테이블 통계(information_schema)의 추정치 사용
+    HAS_NEXT    // 개수를 세지 않고 size + 1 개를 읽어서 다음 페이지 존재 여부만 확인
+
+}
@@ -27,6 +27,13 @@ public class PageRequestDTO {
 
     private String keyword; // 검색 단어
 
+    private Long after; // 커서 모드 : 이 bno 보다 작은(이후) 게시물부터 조회
+
+    private Long before; // 커서 모드 : 이 bno 보다 큰(이전) 게시물부터 조회
+
+    @Builder.Default
+    private CountMode countMode = CountMode.EXACT; // 전체 개수를 구하는 방법
+
     public String[] getTypes(){ // 검색 조건들을 BoardRepository에서 String[] 배열로 처리하기 때문에
         if(type == null || type.isEmpty()){
             return null;
@@ -34,6 +41,10 @@ public class PageRequestDTO {
         return type.split(""); // type이라는 문자열을 배열로 반환
     }
 
+    public boolean isCursorMode(){ // after, before 중 하나라도 있으면 OFFSET 대신 bno seek 방식으로 조회
+        return after != null || before != null;
+    }
+
     public Pageable getPageable(String...props) {
         return PageRequest.of(this.page -1, this.size, Sort.by(props).descending());
     }
@@ -60,6 +71,18 @@ public class PageRequestDTO {
                 } catch (UnsupportedEncodingException e) {
                 }
             }
+
+            if(after != null){
+                builder.append("&after=" + after);
+            }
+
+            if(before != null){
+                builder.append("&before=" + before);
+            }
+
+            if(countMode != null && countMode != CountMode.EXACT){
+                builder.append("&countMode=" + countMode);
+            }
             link = builder.toString();
         }
 
@@ -12,7 +12,10 @@ public class PageResponseDTO<E> {
     // DTO의 목록과 시작페이지, 끝페이지에 대한 처리
     private int page;
     private int size;
-    private int total;
+    private long total;
+
+    //total이 정확한 값인지 (false면 추정치 또는 다음 페이지 존재 여부만 반영한 값)
+    private boolean totalExact;
 
     //시작 페이지 번호
     private int start;
@@ -26,6 +29,10 @@ public class PageResponseDTO<E> {
 
     private List<E> dtoList; // <E> 엘리먼트로 모든 요소를 의미 
 
+    //커서 모드에서 다음/이전 페이지를 조회할 bno (없으면 null)
+    private Long nextCursor;
+    private Long prevCursor;
+
     // build() 메서드에서 사용할 파라미터를 가진 생성자를 생성한다.
     // 예를 들어 phone, name 을 가지는 builder 가 있다면 phone, name 을 파라미터로 가지는 생성자가 생성된다.
     // Builder 는 내부적으로 클래스이름+Builder 라는 static class 를 객체 클래스 내부에 생성한다.
@@ -34,7 +41,7 @@ public class PageResponseDTO<E> {
     // build(), setter 역할을 하는 fieldName() 등의 메서드를 생성한다.
     // 그리고 각 builder 를 구분하기 위해 사용한 builderMethodName 옵션은 내부적으로 builderMethodName 에 선언한 이름으로 Builder 객체를 반환해주는 생성자가 생성된다.
     @Builder(builderMethodName = "withAll")
-    public PageResponseDTO(PageRequestDTO pageRequestDTO, List<E> dtoList, int total){
+    public PageResponseDTO(PageRequestDTO pageRequestDTO, List<E> dtoList, long total, Boolean totalExact){
 
         if(total <= 0){
             return;
@@ -44,6 +51,7 @@ public class PageResponseDTO<E> {
         this.size = pageRequestDTO.getSize();
 
         this.total = total;
+        this.totalExact = totalExact == null || totalExact; // 지정하지 않으면 정확한 값
         this.dtoList = dtoList;
 
         this.end =   (int)(Math.ceil(this.page / 10.0 )) *  10;  //화면에서의 마지막 번호
@@ -56,7 +64,24 @@ public class PageResponseDTO<E> {
 
         this.prev = this.start > 1;
 
-        this.next =  total > this.end * this.size;
+        this.next =  total > (long) this.end * this.size;
+
+    }
+
+    // 커서(keyset) 방식 목록용 생성자 : 전체 개수를 세지 않으므로 total, start, end는 사용하지 않는다.
+    @Builder(builderMethodName = "withCursor", builderClassName = "CursorBuilder")
+    public PageResponseDTO(PageRequestDTO pageRequestDTO, List<E> dtoList, Long nextCursor, Long prevCursor){
+
+        this.page = pageRequestDTO.getPage();
+        this.size = pageRequestDTO.getSize();
+
+        this.dtoList = dtoList;
+
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+
+        this.prev = prevCursor != null;
 
+        this.next = nextCursor != null;
     }
 }
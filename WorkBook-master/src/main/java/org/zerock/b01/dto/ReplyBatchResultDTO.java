@@ -0,0 +1,21 @@
+package org.zerock.b01.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 댓글 일괄 등록 결과 (요청 목록의 순서대로) : 등록되면 rno, 실패하면 error
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReplyBatchResultDTO {
+
+    private int index; // 요청 목록에서의 위치
+
+    private Long rno;
+
+    private String error;
+
+}
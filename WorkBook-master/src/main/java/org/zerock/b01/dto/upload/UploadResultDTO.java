@@ -17,6 +17,8 @@ public class UploadResultDTO {
 
     private boolean img;
 
+    private String error; // 이 파일의 저장에 실패한 경우 사유 (성공하면 null)
+
     public String getLink(){
 
         if (img){
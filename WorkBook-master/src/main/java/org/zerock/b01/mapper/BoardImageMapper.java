@@ -0,0 +1,16 @@
+package org.zerock.b01.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.zerock.b01.domain.BoardImage;
+import org.zerock.b01.dto.BoardImageDTO;
+
+@Mapper(componentModel = "spring")
+public interface BoardImageMapper {
+
+    // 게시물과의 연결은 Board.addImage()에서 처리한다.
+    @Mapping(target = "board", ignore = true)
+    BoardImage toEntity(BoardImageDTO boardImageDTO);
+
+    BoardImageDTO toDTO(BoardImage boardImage);
+}
@@ -0,0 +1,20 @@
+package org.zerock.b01.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.dto.BoardDTO;
+
+// 빌드 시 MapStruct가 BoardMapperImpl을 생성한다. (리플렉션 없이 필드를 복사하는 코드)
+@Mapper(componentModel = "spring")
+public interface BoardMapper {
+
+    // 첨부파일(fileNames)은 Board.addImage()로 따로 추가한다.
+    @Mapping(target = "imageSet", ignore = true)
+    @Mapping(target = "replyCount", ignore = true) // 댓글 수는 BoardRepository의 UPDATE 문으로만 변경
+    Board toEntity(BoardDTO boardDTO);
+
+    // 목록용 (첨부파일 목록이 필요하면 BoardService.entityToDTO() 사용)
+    @Mapping(target = "fileNames", ignore = true)
+    BoardDTO toDTO(Board board);
+}
@@ -0,0 +1,22 @@
+package org.zerock.b01.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.domain.Reply;
+import org.zerock.b01.dto.ReplyDTO;
+
+@Mapper(componentModel = "spring")
+public interface ReplyMapper {
+
+    @Mapping(target = "board", source = "bno")
+    Reply toEntity(ReplyDTO replyDTO);
+
+    @Mapping(target = "bno", source = "board.bno")
+    ReplyDTO toDTO(Reply reply);
+
+    // 게시물은 bno만 가진 참조로 연결한다. (게시물을 조회하지 않는다.)
+    default Board toBoard(Long bno) {
+        return bno == null ? null : Board.builder().bno(bno).build();
+    }
+}
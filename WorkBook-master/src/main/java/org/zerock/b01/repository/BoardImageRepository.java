@@ -0,0 +1,28 @@
+package org.zerock.b01.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import org.zerock.b01.domain.BoardImage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface BoardImageRepository extends JpaRepository<BoardImage, UUID> {
+
+    // 주어진 uuid 중 게시물에 첨부된 것 (업로드 파일 정리 시 사용)
+    @Query("select i.uuid from BoardImage i where i.uuid in :uuids")
+    List<UUID> findAttachedUuids(@Param("uuids") Collection<UUID> uuids);
+
+    // 게시물 일괄 삭제 : 지울 첨부파일 이름(uuid_원본이름)을 먼저 읽고, DELETE 문 하나로 삭제
+    @Query("select i from BoardImage i where i.board.bno in :bnos")
+    List<BoardImage> findByBoardBnos(@Param("bnos") Collection<Long> bnos);
+
+    @Transactional
+    @Modifying
+    @Query("delete from BoardImage i where i.board.bno in :bnos")
+    int deleteByBoardBnos(@Param("bnos") Collection<Long> bnos);
+}
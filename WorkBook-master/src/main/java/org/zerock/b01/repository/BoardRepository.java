@@ -2,10 +2,14 @@ package org.zerock.b01.repository;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import org.zerock.b01.domain.Board;
 import org.zerock.b01.repository.search.BoardSearch;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BoardRepository extends JpaRepository<Board, Long>, BoardSearch {
@@ -14,5 +18,54 @@ public interface BoardRepository extends JpaRepository<Board, Long>, BoardSearch
     @Query("select b from Board b where b.bno =:bno")
     Optional<Board> findByIdWithImages(Long bno); // bno를 이용해 이미지를 찾아옴.
 
+    // 댓글 수 증감은 읽고-쓰기 대신 단일 UPDATE 문으로 처리해서 동시 등록/삭제에도 값이 유실되지 않게 함.
+    @Transactional
+    @Modifying
+    @Query(value = "update board set reply_count = reply_count + 1 where bno = :bno", nativeQuery = true)
+    int increaseReplyCount(Long bno);
+
+    // 댓글 일괄 등록 : 게시물별로 한 번에 증가
+    @Transactional
+    @Modifying
+    @Query(value = "update board set reply_count = reply_count + :count where bno = :bno", nativeQuery = true)
+    int addReplyCount(Long bno, long count);
+
+    // 존재하는 게시물 번호만 (댓글 일괄 등록 전 확인)
+    @Query("select b.bno from Board b where b.bno in :bnos")
+    List<Long> findExistingBnos(Collection<Long> bnos);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update board set reply_count = reply_count - 1 where bno = :bno and reply_count > 0", nativeQuery = true)
+    int decreaseReplyCount(Long bno);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update board set reply_count = 0 where bno = :bno", nativeQuery = true)
+    int resetReplyCount(Long bno);
+
+    // 실제 댓글 수와 달라진 게시물만 다시 계산 (bno 구간 단위로 나누어 실행)
+    @Transactional
+    @Modifying
+    @Query(value = "update board b set b.reply_count = (select count(*) from reply r where r.board_bno = b.bno) " +
+            "where b.bno > :fromBno and b.bno <= :toBno " +
+            "and b.reply_count <> (select count(*) from reply r where r.board_bno = b.bno)", nativeQuery = true)
+    int reconcileReplyCount(Long fromBno, Long toBno);
+
+    // 댓글이 있는데 reply_count가 0인 게시물이 있는지 (칼럼이 추가된 직후 기존 게시물은 모두 0이다.)
+    @Query(value = "select count(*) from (select 1 from board b where b.reply_count = 0 " +
+            "and exists (select 1 from reply r where r.board_bno = b.bno) limit 1) t", nativeQuery = true)
+    long countReplyCountBackfillNeeded();
+
+    @Query("select max(b.bno) from Board b")
+    Long findMaxBno();
+
+    // 게시물 삭제 : 댓글/첨부파일을 먼저 지운 뒤 DELETE 문 하나로 (deleteById는 imageSet을 읽어서 한 건씩 삭제한다.)
+    // 같은 영속성 컨텍스트에 남은 게시물 엔티티는 비운다.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Board b where b.bno in :bnos")
+    int deleteByBnos(Collection<Long> bnos);
+
 
 }
@@ -0,0 +1,34 @@
+package org.zerock.b01.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.zerock.b01.domain.ContentBlob;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    // 같은 내용이 이미 있으면 참조 수만 증가 (동시에 같은 파일이 올라와도 중복 키 오류가 나지 않는다.)
+    @Modifying
+    @Query(value = "insert into content_blob (hash, ext, size, image, ref_count, regdate, moddate) " +
+            "values (:hash, :ext, :size, :image, 1, now(), now()) " +
+            "on duplicate key update ref_count = ref_count + 1, moddate = now()", nativeQuery = true)
+    int addReference(@Param("hash") String hash, @Param("ext") String ext,
+                     @Param("size") long size, @Param("image") boolean image);
+
+    @Modifying
+    @Query(value = "update content_blob set ref_count = ref_count - 1, moddate = now() " +
+            "where hash = :hash and ref_count > 0", nativeQuery = true)
+    int removeReference(@Param("hash") String hash);
+
+    // 참조가 남아 있지 않을 때만 삭제 (1이면 실제 파일도 삭제)
+    @Modifying
+    @Query(value = "delete from content_blob where hash = :hash and ref_count = 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    @Query("select b from ContentBlob b, UploadFile f where f.uuid = :uuid and b.hash = f.hash")
+    Optional<ContentBlob> findByUuid(@Param("uuid") UUID uuid);
+}
@@ -2,14 +2,35 @@ package org.zerock.b01.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import org.zerock.b01.domain.Reply;
 
+import java.util.Collection;
+
 public interface ReplyRepository extends JpaRepository<Reply, Long> {
 
     @Query("select r from Reply r where r.board.bno = :bno")
     Page<Reply> listOfBoard(Long bno, Pageable pageable);
 
-    void deleteByBoard_Bno(Long bno);
+    // 커서 방식 : (board_bno, rno) 인덱스 범위 조회, Slice는 size + 1개를 읽어서 다음 여부만 확인한다. (count 쿼리 없음)
+    @Query("select r from Reply r where r.board.bno = :bno and r.rno > :after order by r.rno asc")
+    Slice<Reply> listOfBoardAfter(Long bno, Long after, Pageable pageable);
+
+    @Query("select r from Reply r where r.board.bno = :bno and r.rno < :before order by r.rno desc")
+    Slice<Reply> listOfBoardBefore(Long bno, Long before, Pageable pageable);
+
+    // 게시물의 댓글 전체 : DELETE 문 하나로 처리 (파생 삭제는 댓글 엔티티를 모두 읽은 뒤 한 건씩 삭제한다.)
+    @Transactional
+    @Modifying
+    @Query("delete from Reply r where r.board.bno = :bno")
+    int deleteByBoard_Bno(Long bno);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Reply r where r.board.bno in :bnos")
+    int deleteByBoardBnos(Collection<Long> bnos);
 }
\ No newline at end of file
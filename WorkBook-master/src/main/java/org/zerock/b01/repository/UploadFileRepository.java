@@ -0,0 +1,19 @@
+package org.zerock.b01.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.zerock.b01.domain.UploadFile;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface UploadFileRepository extends JpaRepository<UploadFile, UUID> {
+
+    // 게시물에 첨부되지 않은 채 before 이전에 올라온 업로드 (uuid(BINARY) 순서 = 업로드 순서로 after 다음부터 끊어서 조회)
+    @Query("select f from UploadFile f where f.uuid > :after and f.regDate < :before " +
+            "and not exists (select i from BoardImage i where i.uuid = f.uuid) order by f.uuid")
+    List<UploadFile> findOrphans(@Param("after") UUID after, @Param("before") LocalDateTime before, Pageable pageable);
+}
@@ -0,0 +1,199 @@
+package org.zerock.b01.repository.search;
+
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.AbstractJPAQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.cache.BoardCountCache;
+import org.zerock.b01.dto.CountMode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 게시물 목록 쿼리에 페이지(offset/limit)를 적용해서 조회하고, CountMode에 따라 전체 개수를 구한다.
+ * 정렬은 호출하는 쪽에서 미리 적용해 둔다.
+ * parallel-count가 켜져 있으면 count 쿼리를 queryExecutor에서 내용 조회와 동시에 실행하고,
+ * count-timeout 안에 끝나지 않으면 다음 페이지 존재 여부만으로 전체 개수를 대신한다.
+ * (늦어진 count 쿼리는 DB 쿼리 타임아웃으로 정리되어 queryExecutor 스레드와 커넥션을 계속 잡고 있지 않는다.)
+ */
+@Component
+@Log4j2
+public class BoardPageCounter {
+
+    private static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout"; // 밀리초
+
+    private final BoardCountCache boardCountCache;
+
+    private final ExecutorService queryExecutor;
+
+    private final boolean parallelCount;
+
+    private final Duration countTimeout;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BoardPageCounter(BoardCountCache boardCountCache,
+                            @Qualifier("queryExecutor") ExecutorService queryExecutor,
+                            @Value("${org.zerock.query.parallel-count:true}") boolean parallelCount,
+                            @Value("${org.zerock.query.count-timeout:300ms}") Duration countTimeout) {
+        this.boardCountCache = boardCountCache;
+        this.queryExecutor = queryExecutor;
+        this.parallelCount = parallelCount;
+        this.countTimeout = countTimeout;
+    }
+
+    public <T> CountedPage<T> fetchPage(JPQLQuery<T> query, Pageable pageable, CountMode countMode,
+                                        String[] types, String keyword) {
+
+        boolean filtered = types != null && types.length > 0 && keyword != null;
+
+        CountMode mode = countMode == null ? CountMode.EXACT : countMode;
+
+        if (mode == CountMode.ESTIMATED && filtered) {
+            mode = CountMode.CACHED; // 테이블 통계로는 검색 조건의 결과 수를 알 수 없다.
+        }
+
+        int size = pageable.getPageSize();
+        long offset = pageable.getOffset();
+
+        // 캐시에 있거나 추정치를 쓸 수 있으면 count 쿼리가 필요 없다.
+        Long knownTotal = null;
+        boolean knownExact = true;
+
+        if (mode == CountMode.CACHED) {
+            knownTotal = boardCountCache.getIfPresent(types, keyword);
+        } else if (mode == CountMode.ESTIMATED) {
+            knownTotal = estimateBoardRows();
+            knownExact = false;
+        }
+
+        boolean needCount = mode != CountMode.HAS_NEXT && knownTotal == null;
+
+        // 다음 페이지 존재 여부를 알 수 있도록 size + 1 개를 읽는다. (HAS_NEXT, 또는 count가 늦을 때 대신 사용)
+        boolean readAhead = mode == CountMode.HAS_NEXT || (needCount && parallelCount);
+
+        query.offset(offset);
+        query.limit(readAhead ? size + 1 : size);
+
+        // count 쿼리는 다른 스레드에서 실행되므로 트랜잭션에 묶이지 않고 별도 커넥션을 사용한다.
+        // (쿼리 객체는 스레드 간에 공유할 수 없으므로 복제본으로 실행한다. 복제할 수 없으면 아래에서 순서대로 실행)
+        JPQLQuery<T> countQuery = needCount && parallelCount ? countQuery(query) : null;
+
+        Future<Long> countFuture = countQuery != null ? queryExecutor.submit(countQuery::fetchCount) : null;
+
+        List<T> content = query.fetch();
+
+        boolean hasNext = readAhead && content.size() > size;
+
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+
+        // 마지막 페이지라면 (한 페이지보다 적게 조회) count 쿼리 없이 정확한 개수를 알 수 있다.
+        if (!hasNext && content.size() < size && (offset == 0 || !content.isEmpty())) {
+            if (countFuture != null) {
+                countFuture.cancel(true);
+            }
+            return new CountedPage<>(content, pageable, offset + content.size(), true);
+        }
+
+        if (mode == CountMode.HAS_NEXT) {
+            return hasNextPage(content, pageable, hasNext);
+        }
+
+        if (knownTotal != null) {
+            // 추정치가 실제보다 작게 나올 수 있으므로 현재 페이지까지는 보이도록 보정
+            long total = Math.max(knownTotal, offset + content.size() + (knownExact ? 0 : 1));
+            return new CountedPage<>(content, pageable, total, knownExact);
+        }
+
+        if (countFuture == null) {
+            long total = query.fetchCount();
+            if (mode == CountMode.CACHED) {
+                boardCountCache.put(types, keyword, total);
+            }
+            return new CountedPage<>(content, pageable, total, true);
+        }
+
+        try {
+            long total = countFuture.get(countTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (mode == CountMode.CACHED) {
+                boardCountCache.put(types, keyword, total);
+            }
+            return new CountedPage<>(content, pageable, total, true);
+
+        } catch (TimeoutException e) {
+            countFuture.cancel(true);
+            log.warn("count query exceeded " + countTimeout.toMillis() + "ms, using has-next total");
+            return hasNextPage(content, pageable, hasNext);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            countFuture.cancel(true);
+            return hasNextPage(content, pageable, hasNext);
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // count 전용 복제본. Future.cancel(true)로는 DB에서 실행 중인 COUNT가 멈추지 않으므로 쿼리 타임아웃을 건다.
+    // (JDBC 쿼리 타임아웃은 초 단위이므로 count-timeout을 초 단위로 올린 값, 그 사이 결과는 사용되지 않는다.)
+    @SuppressWarnings("unchecked")
+    private <T> JPQLQuery<T> countQuery(JPQLQuery<T> query) {
+
+        if (!(query instanceof AbstractJPAQuery<?, ?> jpaQuery)) {
+            return null;
+        }
+
+        long seconds = Math.max(1, (countTimeout.toMillis() + 999) / 1000);
+
+        AbstractJPAQuery<?, ?> copy = jpaQuery.clone();
+        copy.setHint(QUERY_TIMEOUT_HINT, seconds * 1000);
+
+        return (JPQLQuery<T>) copy;
+    }
+
+    // 전체 개수 대신 "현재 페이지까지 + 다음 페이지가 있으면 1"
+    private <T> CountedPage<T> hasNextPage(List<T> content, Pageable pageable, boolean hasNext) {
+
+        long offset = pageable.getOffset();
+
+        boolean exact = !hasNext && (offset == 0 || !content.isEmpty());
+
+        return new CountedPage<>(content, pageable, offset + content.size() + (hasNext ? 1 : 0), exact);
+    }
+
+    // InnoDB 테이블 통계의 행 수 (정확하지 않지만 count(*) 보다 훨씬 싸다)
+    private Long estimateBoardRows() {
+
+        try {
+            Object rows = entityManager.createNativeQuery(
+                            "select table_rows from information_schema.tables " +
+                                    "where table_schema = database() and table_name = 'board'")
+                    .getSingleResult();
+
+            return rows == null ? null : ((Number) rows).longValue();
+
+        } catch (RuntimeException e) {
+            log.warn("board row estimate failed: " + e.getMessage());
+            return null;
+        }
+    }
+}
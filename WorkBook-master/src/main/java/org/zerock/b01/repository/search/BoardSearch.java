@@ -2,9 +2,11 @@ package org.zerock.b01.repository.search;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.zerock.b01.domain.Board;
 import org.zerock.b01.dto.BoardListAllDTO;
 import org.zerock.b01.dto.BoardListReplyCountDTO;
+import org.zerock.b01.dto.CountMode;
 
 public interface BoardSearch {
 
@@ -16,4 +18,14 @@ public interface BoardSearch {
 
     Page<BoardListAllDTO> searchWithAll(String[] types, String keyword, Pageable pageable);
 
+    // countMode에 따라 전체 개수를 구하는 방법이 달라진다. (위의 메서드들은 EXACT)
+    CountedPage<Board> searchAll(String[] types, String keyword, Pageable pageable, CountMode countMode);
+
+    CountedPage<BoardListReplyCountDTO> searchWithReplyCount(String[] types, String keyword, Pageable pageable, CountMode countMode);
+
+    CountedPage<BoardListAllDTO> searchWithAll(String[] types, String keyword, Pageable pageable, CountMode countMode);
+
+    // OFFSET 대신 bno 기준으로 seek 하는 커서 방식 목록 (after : bno < after, before : bno > before)
+    Slice<BoardListAllDTO> searchWithAllCursor(String[] types, String keyword, Long after, Long before, int size);
+
 }
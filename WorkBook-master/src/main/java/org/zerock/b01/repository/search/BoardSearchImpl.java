@@ -5,23 +5,38 @@ import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.JPQLQuery;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.zerock.b01.domain.Board;
 import org.zerock.b01.domain.QBoard;
-import org.zerock.b01.domain.QReply;
+import org.zerock.b01.domain.QBoardImage;
 import org.zerock.b01.dto.BoardImageDTO;
 import org.zerock.b01.dto.BoardListAllDTO;
 import org.zerock.b01.dto.BoardListReplyCountDTO;
+import org.zerock.b01.dto.CountMode;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class BoardSearchImpl extends QuerydslRepositorySupport implements BoardSearch {
 
-    public BoardSearchImpl(){
+    private final BoardTextIndex boardTextIndex; // 제목/내용/작성자 검색용 역색인
+
+    private final BoardPageCounter boardPageCounter; // 페이지 조회 + CountMode별 전체 개수 계산
+
+    public BoardSearchImpl(BoardTextIndex boardTextIndex, BoardPageCounter boardPageCounter){
         super(Board.class);
+        this.boardTextIndex = boardTextIndex;
+        this.boardPageCounter = boardPageCounter;
     }
 
     @Override
@@ -68,94 +83,64 @@ public class BoardSearchImpl extends QuerydslRepositorySupport implements BoardS
 
     @Override
     public Page<Board> searchAll(String[] types, String keyword, Pageable pageable) {
+        return searchAll(types, keyword, pageable, CountMode.EXACT);
+    }
+
+    @Override
+    public CountedPage<Board> searchAll(String[] types, String keyword, Pageable pageable, CountMode countMode) {
         // String[] types (제목t, 내용c, 작성자w)를 가지고 있는 문자열배열
 
         // Querydsl을 사용하기 위해 Q도메인 객체를 생성합니다.
         QBoard board = QBoard.board;
+
+        // 역색인으로 검색 조건을 bno 목록으로 바꿀 수 있으면 해당 페이지의 bno만 조회합니다.
+        long[] matched = indexedSearch(types, keyword, pageable);
+
+        if (matched != null) {
+
+            List<Long> pageBnos = pageOf(matched, pageable);
+
+            List<Board> list = pageBnos.isEmpty() ? Collections.emptyList()
+                    : from(board).where(board.bno.in(pageBnos)).orderBy(board.bno.desc()).fetch();
+
+            return new CountedPage<>(list, pageable, matched.length, true);
+        }
+
         // JPQLQuery 객체를 생성합니다.
         JPQLQuery<Board> query = from(board);
 
-        // 검색 조건과 키워드가 모두 존재하는 경우
-        if (types != null && types.length > 0 && keyword != null) {
-            // BooleanBuilder를 생성하여 조건을 동적으로 추가합니다.
-            BooleanBuilder booleanBuilder = new BooleanBuilder();
-
-            // 검색 조건에 따라 조건을 추가합니다.
-            for (String type : types) {
-                switch (type) {
-                    case "t": // 제목에 대한 검색 조건
-                        booleanBuilder.or(board.title.contains(keyword));
-                        break;
-                    case "c": // 내용에 대한 검색 조건
-                        booleanBuilder.or(board.content.contains(keyword));
-                        break;
-                    case "w": // 작성자에 대한 검색 조건
-                        booleanBuilder.or(board.writer.contains(keyword));
-                        break;
-                }
-            } // end for
-            // 검색 조건을 where 절에 추가합니다.
-            query.where(booleanBuilder);
-        } // end if
+        // 검색 조건(제목t, 내용c, 작성자w)을 OR로 묶어서 where 절에 추가합니다. (조건이 없으면 무시됨)
+        query.where(searchCondition(types, keyword));
 
         // 게시물 식별 번호(bno)가 0보다 큰 경우에 대한 검색 조건을 추가합니다.
         query.where(board.bno.gt(0L));
 
-        // 페이지 정보를 적용합니다.
-        this.getQuerydsl().applyPagination(pageable, query);
+        // 정렬 정보를 적용합니다.
+        this.getQuerydsl().applySorting(pageable.getSort(), query);
 
-        // 쿼리를 실행하여 결과를 리스트로 가져옵니다.
-        List<Board> list = query.fetch();
-
-        // 전체 결과의 개수를 가져옵니다.
-        long count = query.fetchCount();
-
-        // PageImpl 객체를 사용하여 Page<Board> 객체를 생성하여 반환합니다.
-        // PageImpl은 Spring Data에서 제공하는 Page 인터페이스의 구현체입니다.
-        return new PageImpl<>(list, pageable, count);
-        // 데이터를 가져온뒤 List 를 PageImpl 로 변환하기
+        // 페이지(offset/limit)를 적용해서 조회하고, countMode에 따라 전체 결과의 개수를 구합니다.
+        // CountedPage는 PageImpl(Spring Data의 Page 구현체)에 개수가 정확한지 여부를 더한 것입니다.
+        return boardPageCounter.fetchPage(query, pageable, countMode, types, keyword);
     }
 
     @Override
     public Page<BoardListReplyCountDTO> searchWithReplyCount(String[] types, String keyword, Pageable pageable) {
+        return searchWithReplyCount(types, keyword, pageable, CountMode.EXACT);
+    }
 
-        // 게시글과 댓글을 조인할 Q타입 엔티티 객체들을 생성합니다.
+    @Override
+    public CountedPage<BoardListReplyCountDTO> searchWithReplyCount(String[] types, String keyword, Pageable pageable,
+                                                                   CountMode countMode) {
+
+        // Q타입 엔티티 객체를 생성합니다.
         QBoard board = QBoard.board;
-        QReply reply = QReply.reply;
 
         // JPAQueryFactory를 이용하여 JPQL 쿼리를 생성합니다.
+        // 댓글 수는 board.reply_count 컬럼을 읽으므로 댓글 테이블과 조인하거나 그룹화하지 않습니다.
         JPQLQuery<Board> query = from(board);
 
-        // 게시글과 댓글을 left join하여 연결합니다.
-        query.leftJoin(reply).on(reply.board.eq(board));
-
-        // 게시글을 기준으로 그룹화합니다.
-        query.groupBy(board);
-
-        // 검색 조건이 주어졌을 경우에만 실행합니다.
-        if ((types != null && types.length > 0) && keyword != null){
-
-            // BooleanBuilder를 사용하여 다양한 검색 조건을 OR 연산자로 묶습니다.
-            BooleanBuilder booleanBuilder = new BooleanBuilder();
-
-            for (String type: types){
-                switch (type){
-                    // 각 검색 조건에 따라 해당하는 필드를 검색합니다.
-                    case "t":
-                        booleanBuilder.or(board.title.contains(keyword));
-                        break;
-                    case "c":
-                        booleanBuilder.or(board.content.contains(keyword));
-                        break;
-                    case "w":
-                        booleanBuilder.or(board.writer.contains(keyword));
-                        break;
-                }
-            } // for 끝
-
-            // 생성된 검색 조건을 where 절에 추가합니다.
-            query.where(booleanBuilder);
-        }
+        // 검색 조건을 OR 연산자로 묶어서 where 절에 추가합니다. (조건이 없으면 무시됨)
+        query.where(searchCondition(types, keyword));
 
         // 게시글 번호가 0보다 큰 것만 조회합니다.
         query.where(board.bno.gt(0L));
@@ -166,35 +151,186 @@ public class BoardSearchImpl extends QuerydslRepositorySupport implements BoardS
                 board.title,
                 board.writer,
                 board.regDate,
-                reply.count().as("replyCount")
+                board.replyCount
         ));
 
-        // 페이징 및 정렬 정보를 적용합니다.
-        this.getQuerydsl().applyPagination(pageable, dtoQuery);
+        // 정렬 정보를 적용합니다.
+        this.getQuerydsl().applySorting(pageable.getSort(), dtoQuery);
+
+        // 페이지를 조회하고 countMode에 따라 전체 개수를 구해서 Page 객체로 반환합니다.
+        return boardPageCounter.fetchPage(dtoQuery, pageable, countMode, types, keyword);
+
+    }
+
+    @Override
+    public Page<BoardListAllDTO> searchWithAll(String[] types, String keyword, Pageable pageable) {
+        return searchWithAll(types, keyword, pageable, CountMode.EXACT);
+    }
+
+    @Override
+    public CountedPage<BoardListAllDTO> searchWithAll(String[] types, String keyword, Pageable pageable,
+                                                      CountMode countMode) {
+
+        QBoard board = QBoard.board;
+
+        JPQLQuery<Board> boardJPQLQuery = from(board); // 댓글 수는 reply_count 컬럼 (조인, group by 없음)
+
+        // 역색인으로 검색 조건을 bno 목록으로 바꿀 수 있으면 해당 페이지의 bno만 조회
+        long[] matched = indexedSearch(types, keyword, pageable);
+
+        if (matched != null) {
+
+            List<Long> pageBnos = pageOf(matched, pageable);
+
+            if (pageBnos.isEmpty()) {
+                return new CountedPage<>(Collections.emptyList(), pageable, matched.length, true);
+            }
 
-        // 조회된 결과를 DTO 리스트로 변환합니다.
-        List<BoardListReplyCountDTO> dtoList = dtoQuery.fetch();
+            boardJPQLQuery.where(board.bno.in(pageBnos));
+            boardJPQLQuery.orderBy(board.bno.desc());
 
-        // 전체 개수를 조회합니다.
-        long count = dtoQuery.fetchCount();
+            // 1단계 : 목록에 필요한 컬럼만 조회 (content 등 엔티티 전체를 읽지 않음)
+            List<BoardListAllDTO> dtoList = selectListAll(boardJPQLQuery).fetch();
 
-        // DTO 리스트와 페이징 정보를 사용하여 Page 객체를 생성하여 반환합니다.
-        return new PageImpl<>(dtoList, pageable, count);
+            // 2단계 : 페이지의 이미지들을 IN 조건 한 번으로 조회
+            attachImages(dtoList);
+
+            return new CountedPage<>(dtoList, pageable, matched.length, true);
+        }
+
+        boardJPQLQuery.where(searchCondition(types, keyword));  // 638 추가 (검색조건추가)
+
+        getQuerydsl().applySorting(pageable.getSort(), boardJPQLQuery);
+
+        // 1단계 : 목록에 필요한 컬럼만 조회 (페이지/개수는 countMode에 따라 처리)
+        CountedPage<BoardListAllDTO> result =
+                boardPageCounter.fetchPage(selectListAll(boardJPQLQuery), pageable, countMode, types, keyword);
+
+        // 2단계 : 페이지의 이미지들을 IN 조건 한 번으로 조회
+        attachImages(result.getContent());
+
+        return result;
 
     }
 
     @Override
-    public Page<BoardListAllDTO> searchWithAll(String[] types, String keyword, Pageable pageable) {
+    public Slice<BoardListAllDTO> searchWithAllCursor(String[] types, String keyword, Long after, Long before, int size) {
 
         QBoard board = QBoard.board;
-        QReply reply = QReply.reply;
 
         JPQLQuery<Board> boardJPQLQuery = from(board);
-        boardJPQLQuery.leftJoin(reply).on(reply.board.eq(board)); //left join
 
-        if ((types != null && types.length > 0) && keyword != null) {  // 638 추가 (검색조건추가)
+        long[] matched = boardTextIndex.search(types, keyword);
+
+        if (matched != null) {
+
+            // 색인 결과(bno 내림차순)에서 커서 주변의 size + 1 개만 골라서 조회
+            List<Long> window = cursorWindow(matched, after, before, size + 1);
+
+            if (window.isEmpty()) {
+                return new SliceImpl<>(Collections.emptyList(), PageRequest.of(0, size), false);
+            }
+            boardJPQLQuery.where(board.bno.in(window));
+
+        } else {
+            boardJPQLQuery.where(searchCondition(types, keyword));
+        }
+
+        // before가 있으면 이전 페이지 : bno > before 를 오름차순으로 읽은 뒤 뒤집는다.
+        // 그 외에는 다음 페이지 : bno < after 를 내림차순으로 읽는다. (after가 없으면 첫 페이지)
+        // 어느 쪽이든 PK 인덱스에서 바로 시작 위치를 찾으므로 앞쪽 행을 버리는 OFFSET 스캔이 없다.
+        boolean backward = before != null;
+
+        if (backward) {
+            boardJPQLQuery.where(board.bno.gt(before));
+            boardJPQLQuery.orderBy(board.bno.asc());
+        } else {
+            if (after != null) {
+                boardJPQLQuery.where(board.bno.lt(after));
+            }
+            boardJPQLQuery.orderBy(board.bno.desc());
+        }
+
+        boardJPQLQuery.limit(size + 1); // 한 개를 더 읽어서 다음(이전) 페이지가 있는지 판단
+
+        List<BoardListAllDTO> dtoList = new ArrayList<>(selectListAll(boardJPQLQuery).fetch());
+
+        boolean hasMore = dtoList.size() > size;
+
+        if (hasMore) {
+            dtoList.remove(dtoList.size() - 1);
+        }
+
+        if (backward) {
+            Collections.reverse(dtoList); // 화면에는 항상 bno 내림차순으로
+        }
+
+        attachImages(dtoList);
+
+        return new SliceImpl<>(dtoList, PageRequest.of(0, size), hasMore);
+    }
+
+    // 정렬이 bno 내림차순(목록 기본값)일 때만 색인 결과를 그대로 페이지로 자를 수 있다.
+    private long[] indexedSearch(String[] types, String keyword, Pageable pageable) {
+
+        Sort sort = pageable.getSort();
+        Sort.Order order = sort.getOrderFor("bno");
+
+        if (order == null || order.isAscending() || sort.stream().count() != 1) {
+            return null;
+        }
+        return boardTextIndex.search(types, keyword);
+    }
+
+    private List<Long> pageOf(long[] matched, Pageable pageable) {
 
-            BooleanBuilder booleanBuilder = new BooleanBuilder(); // (
+        int from = (int) Math.min(pageable.getOffset(), matched.length);
+        int to = Math.min(from + pageable.getPageSize(), matched.length);
+
+        return Arrays.stream(matched, from, to).boxed().collect(Collectors.toList());
+    }
+
+    private List<Long> cursorWindow(long[] matched, Long after, Long before, int count) {
+
+        int from;
+        int to;
+
+        if (before != null) {
+            to = firstIndexBelow(matched, before + 1); // bno > before 인 구간 [0, to)
+            from = Math.max(0, to - count);
+        } else {
+            from = after == null ? 0 : firstIndexBelow(matched, after);
+            to = Math.min(matched.length, from + count);
+        }
+        return Arrays.stream(matched, from, to).boxed().collect(Collectors.toList());
+    }
+
+    // 내림차순 배열에서 value 보다 작은 첫 번째 위치 (이진 탐색)
+    private int firstIndexBelow(long[] desc, long value) {
+
+        int low = 0;
+        int high = desc.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (desc[mid] < value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // 검색 조건(t, c, w)을 OR로 묶는다. 조건이 없으면 비어 있는 BooleanBuilder (where 절에서 무시됨)
+    // 모든 목록 조회(searchAll, searchWithReplyCount, searchWithAll, 커서 목록)가 같은 조건을 사용한다.
+    static BooleanBuilder searchCondition(String[] types, String keyword) {
+
+        QBoard board = QBoard.board;
+
+        BooleanBuilder booleanBuilder = new BooleanBuilder();
+
+        if ((types != null && types.length > 0) && keyword != null) {
 
             for (String type : types) {
 
@@ -210,50 +346,52 @@ public class BoardSearchImpl extends QuerydslRepositorySupport implements BoardS
                         break;
                 }
             }//end for
-            boardJPQLQuery.where(booleanBuilder);
         }
+        return booleanBuilder;
+    }
 
-        boardJPQLQuery.groupBy(board);
-
-        getQuerydsl().applyPagination(pageable, boardJPQLQuery); //paging
-
-        JPQLQuery<Tuple> tupleJPQLQuery = boardJPQLQuery.select(board, reply.countDistinct());
-
-        List<Tuple> tupleList = tupleJPQLQuery.fetch();
+    private JPQLQuery<BoardListAllDTO> selectListAll(JPQLQuery<Board> boardJPQLQuery) {
 
-        List<BoardListAllDTO> dtoList = tupleList.stream().map(tuple -> {
+        QBoard board = QBoard.board;
 
-            Board board1 = (Board) tuple.get(board);
-            long replyCount = tuple.get(1, Long.class);
+        return boardJPQLQuery.select(Projections.bean(BoardListAllDTO.class,
+                board.bno,
+                board.title,
+                board.writer,
+                board.regDate,
+                board.replyCount
+        ));
+    }
 
-            BoardListAllDTO dto = BoardListAllDTO.builder()
-                    .bno(board1.getBno())
-                    .title(board1.getTitle())
-                    .writer(board1.getWriter())
-                    .regDate(board1.getRegDate())
-                    .replyCount(replyCount)
-                    .build();
+    // 게시물마다 imageSet을 지연 로딩하지 않고, 페이지의 bno 전체에 대해 BoardImage를 한 번에 조회해서 나누어 담는다.
+    private void attachImages(List<BoardListAllDTO> dtoList) {
 
-            //BoardImage를 BoardImageDTO 처리할 부분 637 추가
-            List<BoardImageDTO> imageDTOS = board1.getImageSet().stream().sorted()
-                    .map(boardImage -> BoardImageDTO.builder()
-                            .uuid(boardImage.getUuid())
-                            .fileName(boardImage.getFileName())
-                            .ord(boardImage.getOrd())
-                            .build()
-                    ).collect(Collectors.toList());
+        if (dtoList.isEmpty()) {
+            return;
+        }
 
-            dto.setBoardImages(imageDTOS);
+        QBoardImage boardImage = QBoardImage.boardImage;
 
-            return dto;
-        }).collect(Collectors.toList());
+        List<Long> bnos = dtoList.stream().map(BoardListAllDTO::getBno).collect(Collectors.toList());
 
-        long totalCount = boardJPQLQuery.fetchCount();
+        List<Tuple> rows = from(boardImage)
+                .select(boardImage.board.bno, boardImage.uuid, boardImage.fileName, boardImage.ord)
+                .where(boardImage.board.bno.in(bnos))
+                .orderBy(boardImage.board.bno.asc(), boardImage.ord.asc())
+                .fetch();
 
+        Map<Long, List<BoardImageDTO>> imageMap = new HashMap<>();
 
-        return new PageImpl<>(dtoList, pageable, totalCount);
+        for (Tuple row : rows) {
+            imageMap.computeIfAbsent(row.get(boardImage.board.bno), bno -> new ArrayList<>())
+                    .add(BoardImageDTO.builder()
+                            .uuid(row.get(boardImage.uuid).toString())
+                            .fileName(row.get(boardImage.fileName))
+                            .ord(row.get(boardImage.ord))
+                            .build());
+        }
 
+        dtoList.forEach(dto -> dto.setBoardImages(imageMap.getOrDefault(dto.getBno(), new ArrayList<>())));
     }
 
-
 }
@@ -0,0 +1,623 @@
+package org.zerock.b01.repository.search;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.support.AfterCommit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 게시물 제목(t), 내용(c), 작성자(w)에 대한 바이그램 역색인. (바이그램 -> 정렬된 bno 배열(long[])만 보관하고 원문은 메모리에 두지 않는다.)
+ * 키워드의 바이그램 목록을 교집합해서 후보 bno를 만들고, 후보 안에서만 DB로 실제 포함 여부를 확인한다.
+ * (PK 조회 한 번이므로 LIKE '%keyword%' 전체 스캔보다 싸다. 후보가 max-candidates보다 많거나 한 글자 검색이면
+ * null을 반환해서 LIKE를 사용)
+ * 색인은 후보를 빠뜨리지 않기만 하면 되므로, 수정/삭제 전 내용을 모르는 변경(직접 SQL, 다른 서버)은 새 내용만 추가하고
+ * 남은 항목은 DB 확인에서 걸러진다.
+ * 서비스를 거치지 않은 변경은 moddate 워터마크로 주기적으로 반영한다. (직접 SQL로 수정할 때도 moddate를 바꿔야 한다.
+ * insert는 칼럼 기본값이 현재 시각이다. AuditColumnMigrator 참고)
+ * 색인 내용은 주기적으로 메모리 맵 파일에 스냅샷으로 저장해서 재시작 시 전체 재구축을 피한다.
+ */
+@Component
+@Log4j2
+public class BoardTextIndex {
+
+    private static final String FIELDS = "tcw"; // 검색 타입 순서와 같다.
+
+    private static final String[] COLUMNS = {"title", "content", "writer"};
+
+    private static final int MAGIC = 0x42494458; // "BIDX"
+    private static final int VERSION = 2;
+
+    private static final int CHUNK_SIZE = 1000; // DB에서 한 번에 읽어 올 게시물 수
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024; // 한 번에 매핑할 파일 영역
+
+    // 워터마크보다 이만큼 앞에서부터 다시 읽는다. (늦게 커밋된 트랜잭션, 서버 간 시계 차이)
+    private static final Duration OVERLAP = Duration.ofMinutes(1);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${org.zerock.search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${org.zerock.search.index.snapshot}")
+    private String snapshotPath;
+
+    // 후보가 이보다 많으면 LIKE 검색을 사용한다. (후보 확인은 IN 목록 하나로 한 번만 조회)
+    @Value("${org.zerock.search.index.max-candidates:1000}")
+    private int maxCandidates;
+
+    // 필드 문자 + 바이그램 (예: "t제목") -> 해당 바이그램을 포함하는 (포함했던) bno
+    private final ConcurrentHashMap<String, Posting> postings = new ConcurrentHashMap<>();
+
+    // 여기까지의 moddate는 반영됨 (null이면 아직 전체를 읽지 않았다.)
+    private volatile LocalDateTime watermark;
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (loadSnapshot()) {
+                log.info("board index snapshot loaded: " + postings.size() + " grams, watermark " + watermark);
+            }
+        } catch (IOException e) {
+            log.warn("board index snapshot is broken, rebuilding: " + e.getMessage());
+            postings.clear();
+            watermark = null;
+        }
+
+        // 스냅샷 이후에 등록/수정된 게시물 (스냅샷이 없으면 전체)
+        catchUp();
+
+        ready = true;
+    }
+
+    // 등록 : 커밋된 후에 색인에 반영한다. (롤백된 변경이 색인에 남지 않도록)
+    public void index(Board board) {
+        index(board, null);
+    }
+
+    // 수정 : before(수정 전 {title, content, writer})의 바이그램은 빼고 새 내용을 넣는다.
+    public void index(Board board, String[] before) {
+
+        Long bno = board.getBno();
+        String[] doc = {board.getTitle(), board.getContent(), board.getWriter()};
+
+        AfterCommit.run(() -> {
+            if (before != null) {
+                unlink(bno, before);
+            }
+            link(bno, doc);
+        });
+    }
+
+    // 삭제 : before가 없으면 (내용을 모르면) 남은 항목은 검색 시 DB 확인에서 걸러진다.
+    public void remove(Long bno, String[] before) {
+
+        if (before != null) {
+            AfterCommit.run(() -> unlink(bno, before));
+        }
+    }
+
+    /**
+     * 검색 조건에 일치하는 bno를 내림차순으로 반환한다.
+     * 색인이 준비되지 않았거나, 검색 조건이 없거나, 색인으로 후보를 충분히 줄일 수 없으면 null (기존 LIKE 검색을 사용)
+     */
+    public long[] search(String[] types, String keyword) {
+
+        if (!ready || types == null || types.length == 0 || keyword == null) {
+            return null;
+        }
+
+        List<Integer> fields = new ArrayList<>();
+
+        for (String type : types) {
+            int field = type.length() == 1 ? FIELDS.indexOf(type) : -1;
+            if (field >= 0 && !fields.contains(field)) {
+                fields.add(field);
+            }
+        }
+
+        String word = lower(keyword);
+
+        if (fields.isEmpty() || word.length() < 2) { // 조건이 없거나 한 글자 검색 (바이그램이 없다.)
+            return null;
+        }
+
+        long[] candidates = new long[0];
+
+        for (int field : fields) {
+            candidates = union(candidates, candidates(field, word));
+            if (candidates.length > maxCandidates) {
+                return null;
+            }
+        }
+
+        return verify(candidates, fields, keyword);
+    }
+
+    // 서비스를 거치지 않고 등록/수정된 게시물을 반영하고, 변경이 있으면 스냅샷을 저장한다.
+    @Scheduled(fixedDelayString = "${org.zerock.search.index.flush-interval:10000}")
+    public void flush() {
+
+        if (!ready) {
+            return;
+        }
+
+        catchUp();
+
+        if (dirty.getAndSet(false)) {
+            try {
+                writeSnapshot();
+            } catch (IOException e) {
+                dirty.set(true);
+                log.error("board index snapshot failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (ready && dirty.get()) {
+            try {
+                writeSnapshot();
+            } catch (IOException e) {
+                log.error("board index snapshot failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // 워터마크 이후에 moddate가 바뀐 게시물을 (moddate, bno) 순서로 끊어서 읽는다. 처음에는 전체를 bno 순서로 읽는다.
+    private synchronized void catchUp() {
+
+        LocalDateTime since = watermark;
+
+        if (since == null) {
+            rebuild();
+            return;
+        }
+
+        LocalDateTime from = since.minus(OVERLAP);
+        long lastBno = 0;
+        LocalDateTime last = from;
+
+        while (true) {
+
+            List<Object[]> rows = entityManager.createQuery(
+                            "select b.bno, b.title, b.content, b.writer, b.modDate from Board b " +
+                            "where b.modDate > :last or (b.modDate = :last and b.bno > :bno) " +
+                            "order by b.modDate asc, b.bno asc", Object[].class)
+                    .setParameter("last", last)
+                    .setParameter("bno", lastBno)
+                    .setMaxResults(CHUNK_SIZE)
+                    .getResultList();
+
+            for (Object[] row : rows) {
+                link((Long) row[0], new String[]{(String) row[1], (String) row[2], (String) row[3]});
+            }
+
+            if (!rows.isEmpty()) {
+                Object[] tail = rows.get(rows.size() - 1);
+                lastBno = (Long) tail[0];
+                last = (LocalDateTime) tail[4];
+                if (last.isAfter(since)) {
+                    watermark = last;
+                    dirty.set(true);
+                }
+            }
+
+            if (rows.size() < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private void rebuild() {
+
+        // 읽는 동안 바뀐 게시물은 다음 catchUp에서 OVERLAP 구간으로 다시 읽힌다.
+        LocalDateTime start = entityManager.createQuery("select max(b.modDate) from Board b", LocalDateTime.class)
+                .getSingleResult();
+
+        long last = 0;
+
+        while (true) {
+
+            List<Object[]> rows = entityManager.createQuery(
+                            "select b.bno, b.title, b.content, b.writer from Board b where b.bno > :bno order by b.bno asc",
+                            Object[].class)
+                    .setParameter("bno", last)
+                    .setMaxResults(CHUNK_SIZE)
+                    .getResultList();
+
+            for (Object[] row : rows) {
+                link((Long) row[0], new String[]{(String) row[1], (String) row[2], (String) row[3]});
+            }
+
+            if (rows.size() < CHUNK_SIZE) {
+                break;
+            }
+            last = (Long) rows.get(rows.size() - 1)[0];
+        }
+
+        watermark = start == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : start;
+        dirty.set(true);
+
+        log.info("board index rebuilt: " + postings.size() + " grams");
+    }
+
+    // 모든 바이그램을 포함하는 bno (교집합, 오름차순), 가장 작은 목록을 복사해서 나머지 목록으로 줄여 나간다.
+    private long[] candidates(int field, String word) {
+
+        List<Posting> lists = new ArrayList<>();
+
+        for (String gram : bigrams(word)) {
+            Posting posting = postings.get(FIELDS.charAt(field) + gram);
+            if (posting == null) {
+                return new long[0];
+            }
+            lists.add(posting);
+        }
+
+        lists.sort(Comparator.comparingInt(Posting::size));
+
+        long[] result = lists.get(0).toArray();
+
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = lists.get(i).retain(result);
+        }
+        return result;
+    }
+
+    // 정렬된 두 배열의 합집합 (여러 필드 검색)
+    private static long[] union(long[] a, long[] b) {
+
+        long[] result = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // 후보 중 실제로 키워드를 포함하는 게시물 (PK 목록으로 한 번 조회, 삭제된 게시물도 여기서 빠진다.)
+    private long[] verify(long[] candidates, List<Integer> fields, String keyword) {
+
+        if (candidates.length == 0) {
+            return candidates;
+        }
+
+        String condition = fields.stream()
+                .map(field -> "b." + COLUMNS[field] + " like :pattern escape '!'")
+                .collect(Collectors.joining(" or "));
+
+        String pattern = "%" + keyword.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+
+        return entityManager.createQuery(
+                        "select b.bno from Board b where b.bno in :bnos and (" + condition + ") order by b.bno desc",
+                        Long.class)
+                .setParameter("bnos", Arrays.stream(candidates).boxed().toList())
+                .setParameter("pattern", pattern)
+                .getResultList()
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void link(Long bno, String[] doc) {
+
+        for (int field = 0; field < FIELDS.length(); field++) {
+            for (String gram : bigrams(lower(doc[field]))) {
+                postings.compute(FIELDS.charAt(field) + gram, (key, posting) -> {
+                    Posting target = posting == null ? new Posting(new long[2], 0) : posting;
+                    target.add(bno);
+                    return target;
+                });
+            }
+        }
+        dirty.set(true);
+    }
+
+    private void unlink(Long bno, String[] doc) {
+
+        for (int field = 0; field < FIELDS.length(); field++) {
+            for (String gram : bigrams(lower(doc[field]))) {
+                postings.computeIfPresent(FIELDS.charAt(field) + gram, (key, posting) -> {
+                    posting.remove(bno);
+                    return posting.size() == 0 ? null : posting;
+                });
+            }
+        }
+        dirty.set(true);
+    }
+
+    // 두 글자씩 잘라서 토큰을 만든다. 띄어쓰기가 없는 한글 제목도 부분 검색이 가능하다.
+    private static Set<String> bigrams(String text) {
+
+        Set<String> grams = new HashSet<>();
+
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // 스냅샷 형식 : MAGIC, VERSION, 워터마크(epoch 밀리초), 개수, ([길이, 바이그램 UTF-8], bno 개수, bno...) ...
+    private synchronized void writeSnapshot() throws IOException {
+
+        Path path = Paths.get(snapshotPath);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        LocalDateTime mark = watermark; // 목록보다 먼저 읽는다. (이후의 변경은 다시 읽어도 같은 결과)
+
+        List<byte[]> keys = new ArrayList<>(postings.size());
+        List<long[]> values = new ArrayList<>(postings.size());
+
+        long size = 24;
+
+        for (Map.Entry<String, Posting> entry : postings.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            long[] bnos = entry.getValue().toArray();
+            keys.add(key);
+            values.add(bnos);
+            size += 4 + key.length + 4 + 8L * bnos.length;
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedRegion out = new MappedRegion(channel, FileChannel.MapMode.READ_WRITE, size);
+
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(mark.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            out.putInt(keys.size());
+
+            for (int i = 0; i < keys.size(); i++) {
+                out.putInt(keys.get(i).length);
+                out.transfer(keys.get(i));
+                out.putInt(values.get(i).length);
+                for (long bno : values.get(i)) {
+                    out.putLong(bno);
+                }
+            }
+            out.force();
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("board index snapshot saved: " + keys.size() + " grams");
+    }
+
+    private boolean loadSnapshot() throws IOException {
+
+        Path path = Paths.get(snapshotPath);
+
+        if (!Files.exists(path)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            MappedRegion in = new MappedRegion(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) { // 이전 형식(원문 보관)은 다시 만든다.
+                throw new IOException("unknown snapshot format");
+            }
+
+            LocalDateTime mark = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.getLong()), ZoneId.systemDefault());
+
+            int count = in.getInt();
+
+            for (int i = 0; i < count; i++) {
+
+                byte[] key = new byte[in.getInt()];
+                in.transfer(key);
+
+                long[] bnos = new long[in.getInt()];
+
+                for (int j = 0; j < bnos.length; j++) {
+                    bnos[j] = in.getLong();
+                }
+                Arrays.sort(bnos); // 저장할 때 정렬되어 있다.
+
+                postings.put(new String(key, StandardCharsets.UTF_8), new Posting(bnos, bnos.length));
+            }
+
+            watermark = mark;
+        }
+
+        dirty.set(false);
+        return true;
+    }
+
+    // 한 바이그램의 bno 목록 : 오름차순 long 배열 (항목마다 객체를 만들지 않는다. 검색/변경은 this로 동기화)
+    // 새 게시물은 bno가 크므로 대부분 끝에 추가된다.
+    private static final class Posting {
+
+        private long[] values;
+
+        private int size;
+
+        private Posting(long[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        synchronized void add(long bno) {
+
+            int index = Arrays.binarySearch(values, 0, size, bno);
+
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(2, size + (size >> 1)));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = bno;
+            size++;
+        }
+
+        synchronized void remove(long bno) {
+
+            int index = Arrays.binarySearch(values, 0, size, bno);
+
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+
+            if (values.length > 16 && size < values.length / 4) { // 많이 줄었으면 배열도 줄인다.
+                values = Arrays.copyOf(values, size * 2);
+            }
+        }
+
+        // sorted(오름차순) 중 이 목록에도 있는 값
+        synchronized long[] retain(long[] sorted) {
+
+            long[] result = new long[sorted.length];
+            int n = 0;
+
+            for (long bno : sorted) {
+                if (Arrays.binarySearch(values, 0, size, bno) >= 0) {
+                    result[n++] = bno;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+    }
+
+    // 큰 파일도 다룰 수 있도록 WINDOW_SIZE 단위로 나누어 매핑하면서 순서대로 읽고 쓴다.
+    private static class MappedRegion {
+
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private final long size;
+
+        private final ByteBuffer scratch = ByteBuffer.allocate(8);
+
+        private MappedByteBuffer window;
+        private long position;
+
+        MappedRegion(FileChannel channel, FileChannel.MapMode mode, long size) {
+            this.channel = channel;
+            this.mode = mode;
+            this.size = size;
+        }
+
+        void putInt(int value) throws IOException {
+            scratch.clear();
+            scratch.putInt(value);
+            transfer(scratch.array(), 4);
+        }
+
+        void putLong(long value) throws IOException {
+            scratch.clear();
+            scratch.putLong(value);
+            transfer(scratch.array(), 8);
+        }
+
+        int getInt() throws IOException {
+            transfer(scratch.array(), 4);
+            return ByteBuffer.wrap(scratch.array(), 0, 4).getInt();
+        }
+
+        long getLong() throws IOException {
+            transfer(scratch.array(), 8);
+            return ByteBuffer.wrap(scratch.array(), 0, 8).getLong();
+        }
+
+        void transfer(byte[] bytes) throws IOException {
+            transfer(bytes, bytes.length);
+        }
+
+        // 쓰기 모드에서는 bytes를 파일로, 읽기 모드에서는 파일 내용을 bytes로 옮긴다.
+        private void transfer(byte[] bytes, int length) throws IOException {
+
+            int offset = 0;
+
+            while (offset < length) {
+
+                if (window == null || !window.hasRemaining()) {
+                    if (position >= size) {
+                        throw new IOException("unexpected end of snapshot");
+                    }
+                    force();
+                    window = channel.map(mode, position, Math.min(WINDOW_SIZE, size - position));
+                }
+
+                int count = Math.min(length - offset, window.remaining());
+
+                if (mode == FileChannel.MapMode.READ_ONLY) {
+                    window.get(bytes, offset, count);
+                } else {
+                    window.put(bytes, offset, count);
+                }
+                offset += count;
+                position += count;
+            }
+        }
+
+        void force() {
+            if (window != null && mode != FileChannel.MapMode.READ_ONLY) {
+                window.force();
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.zerock.b01.repository.search;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// 전체 개수가 정확한 값인지(추정치/다음 페이지 여부만 반영한 값인지) 함께 전달하는 Page
+@Getter
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+}
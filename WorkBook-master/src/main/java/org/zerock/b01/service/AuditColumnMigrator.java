@@ -0,0 +1,57 @@
+package org.zerock.b01.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 감사 칼럼(regdate, moddate)이 비어 있는 행을 채운다. (@EnableJpaAuditing 적용 전에 저장된 행은 모두 null)
+ * upload_file은 채운 시각부터 유예 기간이 지나야 정리 대상이 된다. (언제 올라온 파일인지 알 수 없으므로)
+ * board.moddate 에는 기본값(현재 시각)을 둬서 직접 SQL로 insert한 게시물도 검색 색인(BoardTextIndex)이 읽을 수 있게 한다.
+ * 시작할 때마다 확인하고, 채울 행이 없으면 아무것도 하지 않는다.
+ * (EntityManagerFactory 다음에 실행되고 웹 요청을 받기 전에 끝난다.)
+ *
+ * 수동으로 옮길 때는 아래와 같다.
+ *   update board set regdate = now(6) where regdate is null;
+ *   update board set moddate = regdate where moddate is null;
+ *   alter table board modify moddate datetime(6) default current_timestamp(6);
+ *   upload_file도 regdate, moddate를 같은 방법으로 채운다.
+ */
+@Component
+@Log4j2
+public class AuditColumnMigrator {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditColumnMigrator(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate; // entityManagerFactory는 실행 순서를 위해서만 받는다.
+    }
+
+    @PostConstruct
+    public void migrate() {
+
+        backfill("board");
+        backfill("upload_file"); // 첨부되지 않은 업로드 정리(UploadReclaimer)가 regdate로 유예 기간을 판단한다.
+
+        String columnDefault = jdbcTemplate.query("select column_default from information_schema.columns " +
+                        "where table_schema = database() and table_name = 'board' and column_name = 'moddate'",
+                rs -> rs.next() ? rs.getString(1) : null);
+
+        if (columnDefault == null || !columnDefault.toLowerCase().startsWith("current_timestamp")) {
+            jdbcTemplate.execute("alter table board modify moddate datetime(6) default current_timestamp(6)");
+            log.info("board.moddate default set to current_timestamp(6)");
+        }
+    }
+
+    private void backfill(String table) {
+
+        int regdate = jdbcTemplate.update("update " + table + " set regdate = now(6) where regdate is null");
+        int moddate = jdbcTemplate.update("update " + table + " set moddate = regdate where moddate is null");
+
+        if (regdate > 0 || moddate > 0) {
+            log.info(table + " audit columns backfilled: regdate " + regdate + ", moddate " + moddate + " rows");
+        }
+    }
+}
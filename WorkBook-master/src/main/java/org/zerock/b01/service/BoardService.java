@@ -1,5 +1,7 @@
 package org.zerock.b01.service;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 import org.zerock.b01.domain.Board;
 import org.zerock.b01.dto.*;
 
@@ -16,12 +18,18 @@ public interface BoardService {
 
     void remove(Long bno);
 
+    // 여러 게시물을 댓글/첨부파일과 함께 삭제 (청크마다 따로 커밋), 실제로 삭제된 게시물 수
+    int removeAll(List<Long> bnos);
+
     PageResponseDTO<BoardDTO> list(PageRequestDTO pageRequestDTO);
 
     PageResponseDTO<BoardListReplyCountDTO> listWithReplyCount(PageRequestDTO pageRequestDTO);
 
     PageResponseDTO<BoardListAllDTO> listwithall(PageRequestDTO pageRequestDTO);
 
+    // after/before 커서로 bno를 seek 하는 목록 (깊은 페이지도 첫 페이지와 같은 비용)
+    PageResponseDTO<BoardListAllDTO> listWithCursor(PageRequestDTO pageRequestDTO);
+
     default Board dtoToEntity(BoardDTO boardDTO){
 
         Board board = Board.builder()
@@ -31,16 +39,35 @@ public interface BoardService {
                 .writer(boardDTO.getWriter())
                 .build();
 
-        if (boardDTO.getFileNames() != null) {
-            boardDTO.getFileNames().forEach(fileName ->{
-                String[] arr = fileName.split("_");
-                board.addImage(arr[0], arr[1]);
-            });
-        }
+        addImages(board, boardDTO.getFileNames());
+
         return board;
     }
 
+    // 화면에서 전달된 첨부파일 목록(uuid_원본이름)을 게시물에 추가 (등록/수정 공통)
+    // uuid에는 '_'가 없으므로 첫 번째 '_'에서 나눈다. (원본 이름에 '_'가 있어도 그대로 유지)
+    // 형식이 맞지 않으면 400 응답 (화면에서 보낸 값이 잘못된 경우)
+    static void addImages(Board board, List<String> fileNames) {
+
+        if (fileNames == null) {
+            return;
+        }
+
+        for (String fileName : fileNames) {
+            if (fileName == null || !fileName.matches(BoardDTO.FILE_NAME_PATTERN)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid attachment: " + fileName);
+            }
+            int index = fileName.indexOf('_');
+            board.addImage(fileName.substring(0, index), fileName.substring(index + 1));
+        }
+    }
+
     default BoardDTO entityToDTO(Board board) {  // 643 추가
+        return toDTO(board);
+    }
+
+    // entityToDTO(readOne 조회)가 실제로 사용하는 변환 (서비스 인스턴스 없이도 호출 가능)
+    static BoardDTO toDTO(Board board) {
 
         BoardDTO boardDTO = BoardDTO.builder()
                 .bno(board.getBno())
@@ -2,16 +2,29 @@ package org.zerock.b01.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zerock.b01.cache.BoardCountCache;
+import org.zerock.b01.cache.BoardDetailCache;
+import org.zerock.b01.cache.BoardListCache;
 import org.zerock.b01.domain.Board;
 import org.zerock.b01.dto.*;
+import org.zerock.b01.mapper.BoardMapper;
+import org.zerock.b01.repository.BoardImageRepository;
 import org.zerock.b01.repository.BoardRepository;
+import org.zerock.b01.repository.ReplyRepository;
+import org.zerock.b01.repository.search.BoardTextIndex;
+import org.zerock.b01.repository.search.CountedPage;
+import org.zerock.b01.support.AfterCommit;
 
 import jakarta.transaction.Transactional;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -22,26 +35,58 @@ import java.util.stream.Collectors;
 @Transactional
 public class BoardServiceImpl implements BoardService{
 
-    private final ModelMapper modelMapper; // DTO와 엔티티 변환을 해주는 객체
+    private final BoardMapper boardMapper; // DTO와 엔티티 변환 (MapStruct가 빌드 시 생성)
 
     private final BoardRepository boardRepository; // board CRUD용
 
+    private final BoardTextIndex boardTextIndex; // 검색용 역색인 (등록/수정/삭제 시 갱신)
+
+    private final BoardCountCache boardCountCache; // 검색 조건별 게시물 개수 캐시 (등록/수정/삭제 시 초기화)
+
+    private final BoardListCache boardListCache; // 목록 페이지 결과 캐시 (영향을 받는 페이지만 무효화)
+
+    private final BoardDetailCache boardDetailCache; // 게시물 조회 결과 캐시 (수정/삭제 시 무효화)
+
+    private final BoardImageRepository boardImageRepository; // 게시물 삭제 시 첨부파일 일괄 삭제
+
+    private final ReplyRepository replyRepository; // 게시물 삭제 시 댓글 일괄 삭제
+
+    private final UploadReclaimer uploadReclaimer; // 삭제된 게시물의 첨부파일 정리 (백그라운드)
+
+    private final TransactionTemplate transactionTemplate; // 여러 게시물 삭제 시 청크별 트랜잭션
+
+    @Value("${org.zerock.board.remove.chunk-size:100}")
+    private int removeChunkSize;
+
     @Override
     public Long register(BoardDTO boardDTO) {
 
-        Board board = modelMapper.map(boardDTO, Board.class);
-        // ModelMapper 에서는 map(source, destination) 메소드가 호출되면 source와 destination
-        // 타입을 분석하여 매칭 전략 및 기타 설정값에 따라 일치하는 속성을 결정하여 매칭 항목에 대해 데이터를 매핑한다.
+        Board board = boardMapper.toEntity(boardDTO);
 
-        Long bno = boardRepository.save(board).getBno();
+        // 첨부파일은 매퍼가 아닌 엔티티의 addImage()로 추가
+        BoardService.addImages(board, boardDTO.getFileNames());
+
+        Board saved = boardRepository.save(board);
         // save() JPA에서 없으면 Insert, 있으면 Update 진행
 
+        boardTextIndex.index(saved);
+        boardCountCache.invalidateAll();
+        boardListCache.registered(saved);
+
+        Long bno = saved.getBno();
+
         return bno;
     }
 
     @Override
     public BoardDTO readOne(Long bno) {
 
+        // 캐시에 없을 때만 DB에서 조회 (같은 bno의 동시 요청은 한 번만 조회한다.)
+        return boardDetailCache.get(bno, this::loadOne);
+    }
+
+    private BoardDTO loadOne(Long bno) {
+
         // 주어진 식별 번호로 게시물을 조회
         Optional<Board> result = boardRepository.findByIdWithImages(bno);
 
@@ -49,7 +94,6 @@ public class BoardServiceImpl implements BoardService{
         Board board = result.orElseThrow();
 
         // 조회딘 게시물을 BoardDTO로 매핑
-        // ModelMapper를 사용하여 엔티티를 dto로 변환
         BoardDTO boardDTO = entityToDTO(board);
 
         // 변환된 dto를 반환
@@ -67,27 +111,89 @@ public class BoardServiceImpl implements BoardService{
 
         Board board = result.orElseThrow();
 
+        String[] before = BoardListCache.doc(board); // 목록 캐시 무효화, 검색 색인 갱신용 (변경 전 내용)
+
         board.change(boardDTO.getTitle(), boardDTO.getContent());
 
         //첨부파일의 처리 645 추가
         board.clearImages();
 
-        if(boardDTO.getFileNames() != null){
-            for (String fileName : boardDTO.getFileNames()) {
-                String[] arr = fileName.split("_");
-                board.addImage(arr[0], arr[1]);
-            }
-        }
-
+        BoardService.addImages(board, boardDTO.getFileNames());
 
         boardRepository.save(board);
 
+        boardTextIndex.index(board, before);
+        boardCountCache.invalidateAll();
+        boardListCache.modified(board.getBno(), before, board);
+        boardDetailCache.invalidate(board.getBno()); // 제목/내용과 첨부파일 목록이 바뀌었다.
+
     }
     @Override
     public void remove(Long bno) {
 
-        boardRepository.deleteById(bno);
+        // 없는 게시물이면 NoSuchElementException (여러 건 삭제와 달리 조용히 넘어가지 않는다.)
+        if (removeChunk(List.of(bno)) == 0) {
+            throw new NoSuchElementException("board not found: " + bno);
+        }
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED) // 청크마다 따로 커밋 (잠금을 오래 잡지 않도록)
+    public int removeAll(List<Long> bnos) {
+
+        List<Long> distinct = bnos.stream().filter(Objects::nonNull).distinct().toList();
 
+        int removed = 0;
+
+        for (int from = 0; from < distinct.size(); from += removeChunkSize) {
+
+            List<Long> chunk = distinct.subList(from, Math.min(from + removeChunkSize, distinct.size()));
+
+            Integer count = transactionTemplate.execute(status -> removeChunk(chunk));
+
+            removed += count == null ? 0 : count;
+        }
+
+        log.info("boards removed: " + removed + " / " + distinct.size());
+
+        return removed;
+    }
+
+    // 댓글 -> 첨부파일 -> 게시물 순서로 DELETE 문 (엔티티를 한 건씩 지우지 않는다.)
+    // 색인/캐시와 첨부파일 정리는 커밋된 후에 반영된다.
+    private int removeChunk(List<Long> bnos) {
+
+        // 목록 캐시에서 검색 결과로 이 게시물을 포함했을 페이지를 찾기 위해 삭제 전 내용을 읽어 둔다.
+        Map<Long, String[]> docs = boardRepository.findAllById(bnos).stream()
+                .collect(Collectors.toMap(Board::getBno, BoardListCache::doc));
+
+        if (docs.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> found = List.copyOf(docs.keySet());
+
+        List<String> fileNames = boardImageRepository.findByBoardBnos(found).stream()
+                .map(image -> image.getUuid() + "_" + image.getFileName())
+                .toList();
+
+        replyRepository.deleteByBoardBnos(found);
+        boardImageRepository.deleteByBoardBnos(found);
+        int removed = boardRepository.deleteByBnos(found);
+
+        for (Long bno : found) {
+            boardTextIndex.remove(bno, docs.get(bno));
+            boardListCache.removed(bno, docs.get(bno));
+            boardDetailCache.invalidate(bno);
+        }
+        boardCountCache.invalidateAll();
+
+        // 같은 내용을 다른 게시물/업로드가 참조하고 있으면 실제 파일은 남는다.
+        if (!fileNames.isEmpty()) {
+            AfterCommit.run(() -> uploadReclaimer.enqueue(fileNames));
+        }
+
+        return removed;
     }
 
 
@@ -100,18 +206,19 @@ public class BoardServiceImpl implements BoardService{
         Pageable pageable = pageRequestDTO.getPageable("bno"); // 페이지 정보
 
         // 검색 조건과 페이지 정보를 사용하여 게시물을 조회합니다.
-        Page<Board> result = boardRepository.searchAll(types, keyword, pageable);
+        CountedPage<Board> result = boardRepository.searchAll(types, keyword, pageable, pageRequestDTO.getCountMode());
 
         // 조회된 게시물을 BoardDTO로 변환합니다.
         List<BoardDTO> dtoList = result.getContent().stream()
-                .map(board -> modelMapper.map(board, BoardDTO.class))
+                .map(boardMapper::toDTO)
                 .collect(Collectors.toList());
 
         // PageResponseDTO를 생성하여 조회된 결과를 담아 반환합니다.
         return PageResponseDTO.<BoardDTO>withAll()
                 .pageRequestDTO(pageRequestDTO) // 요청된 페이지 정보를 설정합니다.
                 .dtoList(dtoList) // 조회된 게시물 목록을 설정합니다.
-                .total((int) result.getTotalElements()) // 전체 게시물 수를 설정합니다.
+                .total(result.getTotalElements()) // 전체 게시물 수를 설정합니다.
+                .totalExact(result.isTotalExact()) // 전체 게시물 수가 정확한 값인지 설정합니다.
                 .build();
     }
 
@@ -124,31 +231,82 @@ public class BoardServiceImpl implements BoardService{
         Pageable pageable = pageRequestDTO.getPageable("bno");
 
         // 게시글과 댓글 수를 포함하는 DTO의 페이지를 검색합니다.
-        Page<BoardListReplyCountDTO> result = boardRepository.searchWithReplyCount(types, keyword, pageable);
+        CountedPage<BoardListReplyCountDTO> result =
+                boardRepository.searchWithReplyCount(types, keyword, pageable, pageRequestDTO.getCountMode());
 
         // 결과를 PageResponseDTO 객체로 변환하여 반환합니다.
         return PageResponseDTO.<BoardListReplyCountDTO>withAll()
                 .pageRequestDTO(pageRequestDTO)
                 .dtoList(result.getContent())
-                .total((int)result.getTotalElements())
+                .total(result.getTotalElements())
+                .totalExact(result.isTotalExact())
                 .build();
     }
 
     @Override
     public PageResponseDTO<BoardListAllDTO> listwithall(PageRequestDTO pageRequestDTO) {
 
+        if (pageRequestDTO.isCursorMode()) { // 커서 요청은 캐시하지 않는다.
+            return loadListWithAll(pageRequestDTO);
+        }
+        return boardListCache.get(pageRequestDTO, () -> loadListWithAll(pageRequestDTO));
+    }
+
+    private PageResponseDTO<BoardListAllDTO> loadListWithAll(PageRequestDTO pageRequestDTO) {
+
         String[] types = pageRequestDTO.getTypes();
         String keyword = pageRequestDTO.getKeyword();
         Pageable pageable = pageRequestDTO.getPageable("bno");
 
-        Page<BoardListAllDTO> result = boardRepository.searchWithAll(types, keyword, pageable);
+        CountedPage<BoardListAllDTO> result =
+                boardRepository.searchWithAll(types, keyword, pageable, pageRequestDTO.getCountMode());
 
         return PageResponseDTO.<BoardListAllDTO>withAll()
                 .pageRequestDTO(pageRequestDTO)
                 .dtoList(result.getContent())
-                .total((int)result.getTotalElements())
+                .total(result.getTotalElements())
+                .totalExact(result.isTotalExact())
                 .build();
     }
 
+    @Override
+    public PageResponseDTO<BoardListAllDTO> listWithCursor(PageRequestDTO pageRequestDTO) {
+
+        String[] types = pageRequestDTO.getTypes();
+        String keyword = pageRequestDTO.getKeyword();
+        Long after = pageRequestDTO.getAfter();
+        Long before = pageRequestDTO.getBefore();
+
+        Slice<BoardListAllDTO> result =
+                boardRepository.searchWithAllCursor(types, keyword, after, before, pageRequestDTO.getSize());
+
+        List<BoardListAllDTO> dtoList = result.getContent();
+
+        Long nextCursor = null;
+        Long prevCursor = null;
+
+        if (!dtoList.isEmpty()) {
+
+            Long first = dtoList.get(0).getBno();
+            Long last = dtoList.get(dtoList.size() - 1).getBno();
+
+            if (before != null) {
+                // 이전 페이지로 이동한 경우 : 더 읽을 것이 남았으면 이전 커서, 다음 페이지는 항상 존재
+                prevCursor = result.hasNext() ? first : null;
+                nextCursor = last;
+            } else {
+                // 다음 페이지로 이동한 경우 : after로 들어왔다면 이전 페이지가 존재
+                prevCursor = after != null ? first : null;
+                nextCursor = result.hasNext() ? last : null;
+            }
+        }
+
+        return PageResponseDTO.<BoardListAllDTO>withCursor()
+                .pageRequestDTO(pageRequestDTO)
+                .dtoList(dtoList)
+                .nextCursor(nextCursor)
+                .prevCursor(prevCursor)
+                .build();
+    }
 
 }
@@ -0,0 +1,52 @@
+package org.zerock.b01.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 섬네일을 원본과 같은 하위 폴더에 s_원본파일이름 으로 저장한다.
+ */
+@Component
+@ConditionalOnProperty(name = "org.zerock.upload.thumbnail.store", havingValue = "flat", matchIfMissing = true)
+@RequiredArgsConstructor
+public class FlatThumbnailStore implements ThumbnailStore {
+
+    private final UploadStorage uploadStorage;
+
+    @Override
+    public boolean exists(String storageName) {
+        return Files.exists(uploadStorage.thumbnail(storageName));
+    }
+
+    // 이름을 바꿔서 저장하므로 조회 요청이 쓰다 만 섬네일을 읽지 않는다. (image는 업로드 폴더 안에 있어야 한다.)
+    @Override
+    public void put(String storageName, Path image) throws IOException {
+
+        Path target = uploadStorage.newFile("s_" + storageName);
+
+        Files.move(image, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Thumbnail get(String storageName) {
+
+        Path file = uploadStorage.thumbnail(storageName);
+
+        try {
+            return Thumbnail.ofFile(file, Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long delete(String storageName) throws IOException {
+        return uploadStorage.delete("s_" + storageName);
+    }
+}
@@ -0,0 +1,59 @@
+package org.zerock.b01.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * board.bno, reply.rno 를 IDENTITY(auto_increment)에서 시퀀스(board_seq, reply_seq)로 바꾸면서
+ * 시퀀스가 기존 행보다 큰 값부터 나눠 주도록 맞춘다. 시작할 때마다 확인하고, 이미 맞으면 아무것도 하지 않는다.
+ * (EntityManagerFactory 다음에 실행되므로 ddl-auto가 만든 시퀀스가 있고, 웹 요청을 받기 전에 끝난다.)
+ *
+ * 수동으로 옮길 때는 아래와 같다. (MariaDB 10.3 이상)
+ *   create sequence if not exists board_seq start with 1 increment by 50;
+ *   select coalesce(max(bno), 0) + 50 from board;  -- 이 값을 X로
+ *   alter sequence board_seq restart with X;
+ * reply_seq / reply.rno 도 같다. 기존 칼럼의 auto_increment 속성은 남겨 두어도 된다. (id를 직접 넣으므로 사용되지 않음)
+ */
+@Component
+@Log4j2
+public class IdSequenceAligner {
+
+    // 엔티티의 @SequenceGenerator allocationSize와 같아야 한다.
+    private static final long ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate; // entityManagerFactory는 실행 순서를 위해서만 받는다.
+    }
+
+    @PostConstruct
+    public void align() {
+        align("board_seq", "board", "bno");
+        align("reply_seq", "reply", "rno");
+    }
+
+    private void align(String sequence, String table, String column) {
+
+        jdbcTemplate.execute("create sequence if not exists " + sequence
+                + " start with 1 increment by " + ALLOCATION_SIZE);
+
+        Long max = jdbcTemplate.queryForObject("select coalesce(max(" + column + "), 0) from " + table, Long.class);
+
+        // Hibernate(pooled)는 nextval 값 v를 받으면 v - 49 ~ v 를 사용한다. (확인하느라 한 블록을 건너뛴다.)
+        Long next = jdbcTemplate.queryForObject("select nextval(" + sequence + ")", Long.class);
+
+        if (next - ALLOCATION_SIZE + 1 > max) {
+            return;
+        }
+
+        long restart = max + ALLOCATION_SIZE;
+
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + restart);
+
+        log.info(sequence + " restarted with " + restart + " (max " + table + "." + column + " = " + max + ")");
+    }
+}
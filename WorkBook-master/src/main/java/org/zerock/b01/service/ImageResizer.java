@@ -0,0 +1,178 @@
+package org.zerock.b01.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.filters.ImageFilter;
+import net.coobird.thumbnailator.util.exif.ExifFilterUtils;
+import net.coobird.thumbnailator.util.exif.ExifUtils;
+import net.coobird.thumbnailator.util.exif.Orientation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 섬네일/크기별 이미지 생성.
+ * 원본 전체를 디코딩하지 않고 ImageIO 서브샘플링으로 목표 크기의 2배 정도만 읽는다. (40MP 사진도 수 MB)
+ * 디코딩할 이미지의 예상 크기(가로 x 세로 x 4바이트)만큼 전체 예산(org.zerock.upload.decode.budget)에서 빌려 쓰고,
+ * 예산이 모자라면 다른 이미지의 처리가 끝날 때까지 기다린다. (예산보다 큰 이미지는 혼자 처리된다.)
+ * 사용 중인/최대 디코딩 메모리는 upload.image.decode.bytes, upload.image.decode.peak.bytes 로 확인한다.
+ */
+@Component
+@Log4j2
+public class ImageResizer {
+
+    private static final int OVERSAMPLE = 2; // 축소 품질을 위해 목표 크기보다 이만큼 크게 읽는다.
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final Semaphore budget; // KB 단위 허가
+
+    private final int budgetKb;
+
+    private final AtomicLong inUse = new AtomicLong();
+
+    private final AtomicLong peak = new AtomicLong();
+
+    private final Timer waitTimer;
+
+    private final DistributionSummary decodedBytes;
+
+    public ImageResizer(@Value("${org.zerock.upload.decode.budget:128MB}") DataSize budget,
+                        MeterRegistry meterRegistry) {
+
+        this.budgetKb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget.toKilobytes()));
+        this.budget = new Semaphore(budgetKb, true); // 큰 이미지가 작은 이미지에 계속 밀리지 않도록
+
+        Gauge.builder("upload.image.decode.bytes", inUse, AtomicLong::get)
+                .description("estimated heap held by decoded images")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("upload.image.decode.peak.bytes", peak, AtomicLong::get)
+                .description("highest estimated heap held by decoded images at once")
+                .baseUnit("bytes").register(meterRegistry);
+
+        this.waitTimer = Timer.builder("upload.image.decode.wait").register(meterRegistry);
+        this.decodedBytes = DistributionSummary.builder("upload.image.decode.size")
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    // source를 width x height 안에 들어가도록 (비율 유지) 줄여서 target에 저장, 형식은 target의 확장자로 정해진다.
+    public void resize(Path source, int width, int height, Path target) throws IOException {
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("unsupported image: " + source.getFileName());
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(in, true, false); // 메타데이터(EXIF 방향)도 읽는다.
+
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+
+                int subsampling = subsampling(sourceWidth, sourceHeight, width, height);
+
+                long bytes = (long) ceil(sourceWidth, subsampling) * ceil(sourceHeight, subsampling) * BYTES_PER_PIXEL;
+
+                int permits = (int) Math.min(budgetKb, Math.max(1, bytes >> 10));
+
+                acquire(permits);
+
+                try {
+                    record(bytes);
+
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                    BufferedImage image = reader.read(0, param);
+
+                    Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(image).size(width, height);
+
+                    // 파일에서 읽을 때와 같이 EXIF 방향을 적용한다. (휴대폰 사진)
+                    ImageFilter orientation = orientation(reader);
+
+                    if (orientation != null) {
+                        builder.addFilter(orientation);
+                    }
+
+                    builder.toFile(target.toFile());
+
+                } finally {
+                    inUse.addAndGet(-bytes);
+                    budget.release(permits);
+                }
+
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 목표 크기의 OVERSAMPLE배 이상이 남도록 하는 가장 큰 서브샘플링 간격
+    static int subsampling(int sourceWidth, int sourceHeight, int width, int height) {
+
+        double scale = Math.min((double) width / sourceWidth, (double) height / sourceHeight);
+
+        return Math.max(1, (int) (1 / (scale * OVERSAMPLE)));
+    }
+
+    private void acquire(int permits) throws InterruptedIOException {
+
+        long start = System.nanoTime();
+
+        try {
+            budget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for decode budget");
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void record(long bytes) {
+
+        decodedBytes.record(bytes);
+
+        long current = inUse.addAndGet(bytes);
+
+        peak.accumulateAndGet(current, Math::max);
+    }
+
+    private static ImageFilter orientation(ImageReader reader) {
+
+        try {
+            Orientation orientation = ExifUtils.getExifOrientation(reader, 0);
+            return orientation == null || orientation == Orientation.TOP_LEFT
+                    ? null : ExifFilterUtils.getFilterForOrientation(orientation);
+        } catch (IOException | RuntimeException e) { // 메타데이터가 깨져 있으면 방향 없이 처리
+            log.debug("exif orientation unreadable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int ceil(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,289 @@
+package org.zerock.b01.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.zerock.b01.support.TimeOrderedUuid;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * /view/{size}/{fileName} 용 이미지 크기별 변형(긴 변 기준 size 픽셀).
+ * 처음 요청될 때 thumbnailExecutor에서 만들고, 같은 변형을 동시에 요청하면 하나의 작업을 함께 기다린다.
+ * 변형 폴더는 전체 크기(max-size)를 넘으면 가장 오래 사용하지 않은 파일부터 삭제한다. (LRU)
+ */
+@Service
+@Log4j2
+public class ImageVariantService {
+
+    private final Set<Integer> sizes;
+
+    private final Path variantPath;
+
+    private final long maxBytes;
+
+    private final Duration timeout;
+
+    private final ThreadPoolExecutor thumbnailExecutor;
+
+    private final ImageResizer imageResizer; // 서브샘플링 디코딩, 디코딩 메모리 예산
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    // 변형 파일 -> 크기 (접근 순서, 가장 앞이 가장 오래 사용하지 않은 파일)
+    private final LinkedHashMap<Path, Long> lru = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalBytes;
+
+    public ImageVariantService(@Value("${org.zerock.upload.variant.sizes:200,400,800,1200}") List<Integer> sizes,
+                               @Value("${org.zerock.upload.variant.path}") String variantPath,
+                               @Value("${org.zerock.upload.variant.max-size:512MB}") DataSize maxSize,
+                               @Value("${org.zerock.upload.thumbnail.view-timeout:5s}") Duration timeout,
+                               @Qualifier("thumbnailExecutor") ThreadPoolExecutor thumbnailExecutor,
+                               ImageResizer imageResizer,
+                               MeterRegistry meterRegistry) {
+
+        this.sizes = Set.copyOf(sizes);
+        this.variantPath = Paths.get(variantPath).toAbsolutePath().normalize();
+        this.maxBytes = maxSize.toBytes();
+        this.timeout = timeout;
+        this.thumbnailExecutor = thumbnailExecutor;
+        this.imageResizer = imageResizer;
+
+        meterRegistry.gauge("upload.variant.bytes", this, service -> service.totalBytes());
+    }
+
+    // 재시작 시 기존 변형 파일을 마지막 수정 시간 순으로 LRU에 등록
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() throws IOException {
+
+        Files.createDirectories(variantPath);
+
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.list(variantPath)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("tmp_"))
+                    .sorted(Comparator.comparing(ImageVariantService::lastModified))
+                    .toList();
+        }
+
+        for (Path file : files) {
+            add(file, Files.size(file));
+        }
+
+        log.info("image variants: " + files.size() + " files, " + totalBytes() + " bytes");
+    }
+
+    public boolean isSupported(int size) {
+        return sizes.contains(size);
+    }
+
+    /**
+     * source(업로드 폴더의 원본)의 size 변형 파일을 반환한다.
+     * 원본이 size보다 작으면 원본을 그대로 반환하고, 이미지가 아니거나 원본이 없으면 null
+     */
+    public Path get(int size, Path source) {
+
+        if (!isSupported(size) || !Files.exists(source) || !isImage(source)) {
+            return null;
+        }
+
+        Path variant = variantPath.resolve(size + "_" + source.getFileName());
+
+        if (Files.exists(variant)) {
+            touch(variant);
+            return variant;
+        }
+
+        // 원본이 더 작으면 확대하지 않고 원본을 사용한다. (이미지 헤더만 읽음)
+        int[] dimension = dimension(source);
+
+        if (dimension != null && dimension[0] <= size && dimension[1] <= size) {
+            return source;
+        }
+
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> job = inFlight.putIfAbsent(variant.toString(), created);
+
+        if (job == null) {
+
+            job = created;
+
+            try {
+                // 큐가 가득 차면 요청 스레드에서 직접 생성된다. (CallerRunsPolicy)
+                thumbnailExecutor.execute(() -> {
+                    try {
+                        created.complete(generate(size, source, variant));
+                    } catch (RuntimeException e) {
+                        created.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(variant.toString(), created);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(variant.toString(), created);
+                created.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return job.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("image variant failed: " + variant.getFileName() + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 원본과 같은 파일의 모든 크기 변형 삭제 (원본이 삭제될 때)
+    public void remove(String storageName) {
+
+        for (int size : sizes) {
+
+            Path variant = variantPath.resolve(size + "_" + storageName);
+
+            try {
+                if (Files.deleteIfExists(variant)) {
+                    forget(variant);
+                }
+            } catch (IOException e) {
+                log.warn("image variant delete failed: " + variant.getFileName() + " " + e.getMessage());
+            }
+        }
+    }
+
+    private Path generate(int size, Path source, Path variant) {
+
+        try {
+            // 확장자로 이미지 형식이 정해지므로 임시 파일도 같은 확장자로 끝나게 만든다.
+            Path temp = variantPath.resolve("tmp_" + TimeOrderedUuid.next() + "_" + variant.getFileName());
+
+            try {
+                imageResizer.resize(source, size, size, temp);
+                Files.move(temp, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            add(variant, Files.size(variant));
+            evict();
+
+            return variant;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 이미지 헤더만 읽어서 크기를 구한다. (전체를 디코딩하지 않음, 읽을 수 없으면 null)
+    private static int[] dimension(Path source) {
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+
+            if (in == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(in, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isImage(Path source) {
+        return MediaTypeFactory.getMediaType(source.getFileName().toString())
+                .map(mediaType -> "image".equals(mediaType.getType()))
+                .orElse(false);
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized void touch(Path variant) {
+        lru.get(variant); // 접근 순서 갱신
+    }
+
+    private synchronized void add(Path variant, long bytes) {
+
+        Long old = lru.put(variant, bytes);
+
+        totalBytes += bytes - (old == null ? 0 : old);
+    }
+
+    private synchronized void forget(Path variant) {
+
+        Long old = lru.remove(variant);
+
+        if (old != null) {
+            totalBytes -= old;
+        }
+    }
+
+    private void evict() {
+
+        while (true) {
+
+            Path eldest;
+
+            synchronized (this) {
+                if (totalBytes <= maxBytes || lru.isEmpty()) {
+                    return;
+                }
+                eldest = lru.keySet().iterator().next();
+                totalBytes -= lru.remove(eldest);
+            }
+
+            try {
+                Files.deleteIfExists(eldest);
+            } catch (IOException e) {
+                log.warn("image variant evict failed: " + eldest.getFileName() + " " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.zerock.b01.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.repository.BoardRepository;
+
+/**
+ * board.reply_count 가 실제 댓글 수와 달라진 경우(직접 SQL 수정, 장애 등) 다시 맞춰주는 작업.
+ * 한 번에 전체를 잠그지 않도록 bno 구간 단위로 나누어 실행한다.
+ * reply_count 칼럼이 새로 추가되면 기존 게시물은 모두 0이므로, 시작할 때 확인해서 필요하면 바로 한 번 실행한다.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class ReplyCountReconciler {
+
+    private final BoardRepository boardRepository;
+
+    @Value("${org.zerock.reply-count.reconcile-chunk:1000}")
+    private long chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+
+        if (boardRepository.countReplyCountBackfillNeeded() == 0) {
+            return;
+        }
+
+        log.info("reply count backfill started");
+
+        reconcile();
+    }
+
+    @Scheduled(cron = "${org.zerock.reply-count.reconcile-cron:0 0 4 * * *}")
+    public int reconcile() {
+
+        Long maxBno = boardRepository.findMaxBno();
+
+        if (maxBno == null) {
+            return 0;
+        }
+
+        int fixed = 0;
+
+        for (long from = 0; from < maxBno; from += chunkSize) {
+            fixed += boardRepository.reconcileReplyCount(from, from + chunkSize); // 구간마다 별도 트랜잭션
+        }
+
+        log.info("reply count reconciled: " + fixed + " boards");
+
+        return fixed;
+    }
+}
@@ -2,18 +2,31 @@ package org.zerock.b01.service;
 
 import org.zerock.b01.dto.PageRequestDTO;
 import org.zerock.b01.dto.PageResponseDTO;
+import org.zerock.b01.dto.ReplyBatchResultDTO;
 import org.zerock.b01.dto.ReplyDTO;
 
+import java.util.List;
+
 public interface ReplyService {
 
     Long register(ReplyDTO replyDTO);
 
+    // 여러 댓글을 검증 후 청크 단위(청크마다 트랜잭션 하나)로 등록, 결과는 요청 순서대로 항목별 rno 또는 오류
+    List<ReplyBatchResultDTO> registerAll(List<ReplyDTO> replyDTOList);
+
     ReplyDTO read(Long rno);
 
     void modify(ReplyDTO replyDTO);
 
     void remove(Long rno);
 
+    void removeAllOfBoard(Long bno); // 게시물의 댓글 전체 삭제 (댓글 수도 0으로)
+
     PageResponseDTO<ReplyDTO> getListOfBoard(Long bno, PageRequestDTO pageRequestDTO);
 
+    // 커서 방식 (전체 개수를 세지 않음)
+    // after : 이 rno 다음 댓글부터 오래된 순, before : 이 rno 이전 댓글부터 최신 순 (0이면 가장 최근 댓글부터)
+    // nextCursor는 같은 방향으로 계속 읽을 커서, prevCursor는 반대 방향 커서 (after로 읽었으면 before에 사용)
+    PageResponseDTO<ReplyDTO> getListOfBoardWithCursor(Long bno, PageRequestDTO pageRequestDTO);
+
 }
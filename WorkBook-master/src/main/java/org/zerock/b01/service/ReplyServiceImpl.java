@@ -3,40 +3,152 @@ package org.zerock.b01.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zerock.b01.cache.BoardListCache;
 import org.zerock.b01.domain.Reply;
 import org.zerock.b01.dto.PageRequestDTO;
 import org.zerock.b01.dto.PageResponseDTO;
+import org.zerock.b01.dto.ReplyBatchResultDTO;
 import org.zerock.b01.dto.ReplyDTO;
+import org.zerock.b01.mapper.ReplyMapper;
+import org.zerock.b01.repository.BoardRepository;
 import org.zerock.b01.repository.ReplyRepository;
 
-import java.util.List;
-import java.util.Optional;
+import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
+@Transactional
 public class ReplyServiceImpl implements ReplyService{
 
     private final ReplyRepository replyRepository;
 
-    private final ModelMapper modelMapper;
+    private final BoardRepository boardRepository; // board.reply_count 증감용
+
+    private final BoardListCache boardListCache; // 댓글 수가 바뀐 게시물이 있는 목록 페이지 무효화
+
+    private final ReplyMapper replyMapper; // DTO와 엔티티 변환 (MapStruct가 빌드 시 생성)
+
+    private final TransactionTemplate transactionTemplate; // 일괄 등록 청크별 트랜잭션
+
+    private final Validator validator;
+
+    @Value("${org.zerock.reply.batch.chunk-size:500}")
+    private int chunkSize;
 
     @Override
     public Long register(ReplyDTO replyDTO) {
         // dto를 entity 객체로 변환
-        Reply reply = modelMapper.map(replyDTO, Reply.class);
+        Reply reply = replyMapper.toEntity(replyDTO);
         log.info(reply);
         log.info(reply.getBoard());
         Long rno = replyRepository.save(reply).getRno();
+
+        boardRepository.increaseReplyCount(replyDTO.getBno());
+        boardListCache.replyChanged(replyDTO.getBno());
+
         return rno;
     }
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED) // 청크마다 따로 커밋 (실패한 청크만 오류)
+    public List<ReplyBatchResultDTO> registerAll(List<ReplyDTO> replyDTOList) {
+
+        List<ReplyBatchResultDTO> results = new ArrayList<>(replyDTOList.size());
+        List<Integer> valid = new ArrayList<>();
+
+        for (int i = 0; i < replyDTOList.size(); i++) {
+
+            String error = validate(replyDTOList.get(i));
+
+            results.add(ReplyBatchResultDTO.builder().index(i).error(error).build());
+
+            if (error == null) {
+                valid.add(i);
+            }
+        }
+
+        // 없는 게시물 번호는 한 번에 확인 (FK 오류로 청크 전체가 실패하지 않도록)
+        Set<Long> bnos = valid.stream().map(i -> replyDTOList.get(i).getBno()).collect(Collectors.toSet());
+        Set<Long> existing = bnos.isEmpty() ? Set.of() : new HashSet<>(boardRepository.findExistingBnos(bnos));
+
+        valid.removeIf(i -> {
+            Long bno = replyDTOList.get(i).getBno();
+            if (existing.contains(bno)) {
+                return false;
+            }
+            results.get(i).setError("board not found: " + bno);
+            return true;
+        });
+
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+
+            List<Integer> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+
+            try {
+                List<Long> rnos = transactionTemplate.execute(status -> insertChunk(replyDTOList, chunk));
+
+                for (int j = 0; j < chunk.size(); j++) {
+                    results.get(chunk.get(j)).setRno(rnos.get(j));
+                }
+
+            } catch (RuntimeException e) {
+                log.error("reply batch chunk failed: " + e.getMessage());
+                chunk.forEach(i -> results.get(i).setError(e.getMessage()));
+            }
+        }
+
+        return results;
+    }
+
+    // 시퀀스에서 미리 받은 rno로 저장하고 커밋할 때 hibernate.jdbc.batch_size씩 묶어서 insert, 게시물별 댓글 수는 한 번씩 증가
+    private List<Long> insertChunk(List<ReplyDTO> replyDTOList, List<Integer> chunk) {
+
+        List<Reply> replies = chunk.stream().map(i -> replyMapper.toEntity(replyDTOList.get(i))).toList();
+
+        List<Long> rnos = replyRepository.saveAll(replies).stream().map(Reply::getRno).toList();
+
+        Map<Long, Long> counts = chunk.stream()
+                .collect(Collectors.groupingBy(i -> replyDTOList.get(i).getBno(), Collectors.counting()));
+
+        counts.forEach((bno, count) -> {
+            boardRepository.addReplyCount(bno, count);
+            boardListCache.replyChanged(bno);
+        });
+
+        return rnos;
+    }
+
+    // 항목별 검증 오류 ("필드: 메시지", 없으면 null)
+    private String validate(ReplyDTO replyDTO) {
+
+        if (replyDTO == null) {
+            return "empty item";
+        }
+
+        Set<ConstraintViolation<ReplyDTO>> violations = validator.validate(replyDTO);
+
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
     @Override
     public ReplyDTO read(Long rno) {
 
@@ -44,7 +156,7 @@ public class ReplyServiceImpl implements ReplyService{
 
         Reply reply = replyOptional.orElseThrow();
 
-        return modelMapper.map(reply, ReplyDTO.class);
+        return replyMapper.toDTO(reply);
     }
 
     @Override
@@ -63,10 +175,26 @@ public class ReplyServiceImpl implements ReplyService{
     @Override
     public void remove(Long rno) {
 
-        replyRepository.deleteById(rno);
+        Reply reply = replyRepository.findById(rno).orElseThrow();
+
+        replyRepository.delete(reply);
+
+        if (reply.getBoard() != null) {
+            boardRepository.decreaseReplyCount(reply.getBoard().getBno());
+            boardListCache.replyChanged(reply.getBoard().getBno());
+        }
 
     }
 
+    @Override
+    public void removeAllOfBoard(Long bno) {
+
+        replyRepository.deleteByBoard_Bno(bno);
+
+        boardRepository.resetReplyCount(bno);
+        boardListCache.replyChanged(bno);
+    }
+
     @Override
     public PageResponseDTO<ReplyDTO> getListOfBoard(Long bno, PageRequestDTO pageRequestDTO) {
 
@@ -77,13 +205,51 @@ public class ReplyServiceImpl implements ReplyService{
         Page<Reply> result = replyRepository.listOfBoard(bno, pageable);
 
         List<ReplyDTO> dtoList =
-        result.getContent().stream().map(reply -> modelMapper.map(reply, ReplyDTO.class))
+        result.getContent().stream().map(replyMapper::toDTO)
                 .collect(Collectors.toList());
 
         return PageResponseDTO.<ReplyDTO>withAll()
                 .pageRequestDTO(pageRequestDTO)
                 .dtoList(dtoList)
-                .total((int)result.getTotalElements())
+                .total(result.getTotalElements())
+                .build();
+    }
+
+    @Override
+    public PageResponseDTO<ReplyDTO> getListOfBoardWithCursor(Long bno, PageRequestDTO pageRequestDTO) {
+
+        Long after = pageRequestDTO.getAfter();
+        Long before = pageRequestDTO.getBefore();
+
+        Pageable pageable = PageRequest.of(0, pageRequestDTO.getSize()); // 항상 첫 페이지 (OFFSET 없음)
+
+        boolean newestFirst = after == null;
+
+        Slice<Reply> result = newestFirst
+                ? replyRepository.listOfBoardBefore(bno, before == null || before <= 0 ? Long.MAX_VALUE : before, pageable)
+                : replyRepository.listOfBoardAfter(bno, after, pageable);
+
+        List<ReplyDTO> dtoList = result.getContent().stream().map(replyMapper::toDTO).toList();
+
+        Long nextCursor = null;
+        Long prevCursor = null;
+
+        if (!dtoList.isEmpty()) {
+
+            Long first = dtoList.get(0).getRno();
+            Long last = dtoList.get(dtoList.size() - 1).getRno();
+
+            Long cursor = newestFirst ? before : after;
+
+            nextCursor = result.hasNext() ? last : null;
+            prevCursor = cursor != null && cursor > 0 ? first : null; // 커서로 들어왔다면 반대 방향에도 댓글이 있다.
+        }
+
+        return PageResponseDTO.<ReplyDTO>withCursor()
+                .pageRequestDTO(pageRequestDTO)
+                .dtoList(dtoList)
+                .nextCursor(nextCursor)
+                .prevCursor(prevCursor)
                 .build();
     }
 }
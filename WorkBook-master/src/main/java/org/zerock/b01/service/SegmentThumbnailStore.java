@@ -0,0 +1,425 @@
+package org.zerock.b01.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 섬네일을 큰 세그먼트 파일(segment-000001.thumbs)에 이어 붙여 저장한다. (파일/inode 하나에 섬네일 수천 개)
+ * 세그먼트는 메모리 매핑해서 읽으므로, 조회할 때 파일을 열고 닫는 시스템 호출이 없다.
+ * 색인(원본 파일 이름 -> 세그먼트, 위치, 길이)은 메모리에만 두고, 시작할 때 세그먼트를 차례로 읽어 다시 만든다.
+ * 삭제는 삭제 레코드(tombstone)를 이어 붙이고, 버려진 공간이 많은 세그먼트는 살아 있는 레코드만 옮긴 뒤 지운다.
+ * 마지막 레코드가 끊기면 (CRC 불일치) 그 섬네일은 다음 조회 때 다시 생성된다.
+ *
+ * 레코드 : magic(4) type(1) 0(1) 키 길이(2) 내용 길이(4) crc(4) 값(8) 키 내용
+ * (값은 저장 시각, 삭제 레코드는 삭제된 레코드가 있던 세그먼트 번호)
+ */
+@Component
+@ConditionalOnProperty(name = "org.zerock.upload.thumbnail.store", havingValue = "segment")
+@Log4j2
+public class SegmentThumbnailStore implements ThumbnailStore {
+
+    private static final int MAGIC = 0x54484d42; // "THMB"
+
+    private static final byte PUT = 1;
+    private static final byte TOMBSTONE = 2;
+
+    private static final int HEADER = 24;
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{6})\\.thumbs");
+
+    private final UploadStorage uploadStorage; // 이전에 파일로 저장된 섬네일
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final double compactRatio;
+
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final Counter compactedBytes;
+
+    private volatile Segment active; // 쓰기는 this로 동기화
+
+    public SegmentThumbnailStore(UploadStorage uploadStorage,
+                                 @Value("${org.zerock.upload.thumbnail.segment.path}") String path,
+                                 @Value("${org.zerock.upload.thumbnail.segment.size:64MB}") DataSize segmentSize,
+                                 @Value("${org.zerock.upload.thumbnail.segment.compact-ratio:0.5}") double compactRatio,
+                                 MeterRegistry meterRegistry) throws IOException {
+
+        this.uploadStorage = uploadStorage;
+        this.directory = Paths.get(path).toAbsolutePath().normalize();
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes()); // 매핑 하나의 최대 크기
+        this.compactRatio = compactRatio;
+
+        Files.createDirectories(directory);
+
+        load();
+
+        Gauge.builder("upload.thumbnail.segment.count", segments, Map::size).register(meterRegistry);
+        Gauge.builder("upload.thumbnail.segment.bytes", this, store -> store.total(segment -> segment.position))
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("upload.thumbnail.segment.live.bytes", this, store -> store.total(segment -> segment.live.get()))
+                .baseUnit("bytes").register(meterRegistry);
+
+        this.compactedBytes = Counter.builder("upload.thumbnail.segment.compacted.bytes")
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Override
+    public boolean exists(String storageName) {
+        return index.containsKey(storageName) || importLegacy(storageName);
+    }
+
+    @Override
+    public void put(String storageName, Path image) throws IOException {
+
+        byte[] data = Files.readAllBytes(image);
+
+        synchronized (this) {
+            Location location = append(PUT, storageName, System.currentTimeMillis(), ByteBuffer.wrap(data));
+            replace(storageName, location);
+        }
+    }
+
+    @Override
+    public Thumbnail get(String storageName) {
+
+        Location location = index.get(storageName);
+
+        if (location == null && importLegacy(storageName)) {
+            location = index.get(storageName);
+        }
+
+        return location == null ? null : Thumbnail.ofData(location.data(), location.lastModified);
+    }
+
+    @Override
+    public long delete(String storageName) throws IOException {
+
+        long bytes = uploadStorage.delete("s_" + storageName); // 아직 옮기지 않은 이전 파일
+
+        synchronized (this) {
+
+            Location removed = index.remove(storageName);
+
+            if (removed == null) {
+                return bytes;
+            }
+            removed.segment.live.addAndGet(-removed.recordLength);
+
+            append(TOMBSTONE, storageName, removed.segment.id, ByteBuffer.allocate(0));
+
+            return bytes + removed.length;
+        }
+    }
+
+    // 버려진 공간이 compact-ratio 이상인 (쓰기가 끝난) 세그먼트의 살아 있는 레코드를 현재 세그먼트로 옮기고 삭제
+    @Scheduled(fixedDelayString = "${org.zerock.upload.thumbnail.segment.compact-interval:600000}")
+    public void compact() {
+
+        for (Segment segment : segments.values()) {
+
+            if (segment == active || segment.position == 0
+                    || segment.live.get() > segment.position * (1 - compactRatio)) {
+                continue;
+            }
+
+            try {
+                compact(segment);
+            } catch (IOException | RuntimeException e) {
+                log.error("thumbnail segment compaction failed: " + segment.path.getFileName() + " " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void flush() {
+        active.map.force();
+    }
+
+    private void compact(Segment segment) throws IOException {
+
+        long moved = 0;
+
+        for (Record record : scan(segment)) {
+            synchronized (this) {
+                if (record.type == PUT) {
+                    Location current = index.get(record.key);
+                    if (current != null && current.segment == segment && current.offset == record.offset) {
+                        replace(record.key, append(PUT, record.key, record.value, current.data()));
+                        moved += record.length();
+                    }
+                } else if (!index.containsKey(record.key) && !segments.headMap(segment.id).isEmpty()) {
+                    // 이 세그먼트보다 앞의 세그먼트가 남아 있으면 같은 키의 이전 레코드가 있을 수 있다.
+                    // (삭제된 레코드가 있던 세그먼트가 정리됐어도 그보다 오래된 레코드가 남아 있을 수 있음)
+                    // 다시 시작할 때 살아나지 않도록 옮긴다.
+                    append(TOMBSTONE, record.key, record.value, ByteBuffer.allocate(0));
+                }
+            }
+        }
+
+        synchronized (this) {
+            active.map.force(); // 옮긴 레코드가 디스크에 쓰인 뒤에 이전 세그먼트를 지운다.
+            segments.remove(segment.id);
+        }
+
+        segment.channel.close();
+
+        // 조회 중인 요청이 가진 매핑은 GC될 때까지 유효하다. (삭제하지 못하면 다음 시작 때 다시 읽지만 옮긴 레코드가 뒤에 있다.)
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("thumbnail segment delete failed: " + segment.path.getFileName() + " " + e.getMessage());
+        }
+
+        compactedBytes.increment(segment.position - moved);
+
+        log.info("thumbnail segment compacted: " + segment.path.getFileName() + " moved " + moved + " bytes");
+    }
+
+    // 이전 방식(FlatThumbnailStore)으로 저장된 섬네일은 처음 조회될 때 세그먼트로 옮긴다.
+    private boolean importLegacy(String storageName) {
+
+        if (!uploadStorage.isValidName(storageName)) {
+            return false;
+        }
+
+        Path file = uploadStorage.thumbnail(storageName);
+
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+
+        try {
+            put(storageName, file);
+            uploadStorage.delete("s_" + storageName);
+            return true;
+        } catch (IOException e) {
+            log.warn("thumbnail import failed: " + storageName + " " + e.getMessage());
+            return false;
+        }
+    }
+
+    // this로 동기화된 상태에서 호출
+    private void replace(String key, Location location) {
+
+        Location previous = index.put(key, location);
+
+        if (previous != null) {
+            previous.segment.live.addAndGet(-previous.recordLength);
+        }
+        location.segment.live.addAndGet(location.recordLength);
+    }
+
+    // this로 동기화된 상태에서 호출 : 키와 내용을 먼저 쓰고 magic을 마지막에 써서, 중간에 끊긴 레코드는 읽지 않는다.
+    private Location append(byte type, String key, long value, ByteBuffer data) throws IOException {
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = data.remaining();
+        int recordLength = HEADER + keyBytes.length + length;
+
+        if (recordLength > segmentSize) {
+            throw new IOException("thumbnail larger than segment: " + key);
+        }
+
+        if (active.position + recordLength > segmentSize) {
+            active.map.force();
+            active = open(active.id + 1);
+        }
+
+        Segment segment = active;
+        int offset = segment.position;
+        MappedByteBuffer map = segment.map;
+
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(data.duplicate());
+
+        map.put(offset + HEADER, keyBytes);
+        map.put(offset + HEADER + keyBytes.length, data, data.position(), length);
+
+        map.put(offset + 4, type);
+        map.put(offset + 5, (byte) 0);
+        map.putShort(offset + 6, (short) keyBytes.length);
+        map.putInt(offset + 8, length);
+        map.putInt(offset + 12, (int) crc.getValue());
+        map.putLong(offset + 16, value);
+        map.putInt(offset, MAGIC);
+
+        segment.position += recordLength;
+
+        return new Location(segment, offset, offset + HEADER + keyBytes.length, length, value, recordLength);
+    }
+
+    // 세그먼트를 번호 순서로 읽어서 색인을 만든다. (뒤의 레코드가 앞의 레코드를 덮어쓴다.)
+    private void load() throws IOException {
+
+        List<Integer> ids = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+
+        ids.sort(null);
+
+        for (int id : ids) {
+
+            Segment segment = open(id);
+
+            for (Record record : scan(segment)) {
+                if (record.type == PUT) {
+                    replace(record.key, new Location(segment, record.offset, record.dataOffset,
+                            record.dataLength, record.value, record.length()));
+                } else {
+                    Location removed = index.remove(record.key);
+                    if (removed != null) {
+                        removed.segment.live.addAndGet(-removed.recordLength);
+                    }
+                }
+                segment.position = record.offset + record.length();
+            }
+        }
+
+        if (active == null) {
+            active = open(1);
+        }
+
+        log.info("thumbnail segments loaded: " + segments.size() + " segments, " + index.size() + " thumbnails");
+    }
+
+    private List<Record> scan(Segment segment) {
+
+        List<Record> records = new ArrayList<>();
+
+        MappedByteBuffer map = segment.map;
+        int offset = 0;
+        int limit = map.capacity();
+
+        while (offset + HEADER <= limit && map.getInt(offset) == MAGIC) {
+
+            byte type = map.get(offset + 4);
+            int keyLength = Short.toUnsignedInt(map.getShort(offset + 6));
+            int dataLength = map.getInt(offset + 8);
+            int end = offset + HEADER + keyLength + dataLength;
+
+            if (dataLength < 0 || end > limit || end < offset) {
+                break;
+            }
+
+            byte[] keyBytes = new byte[keyLength];
+            map.get(offset + HEADER, keyBytes);
+
+            CRC32 crc = new CRC32();
+            crc.update(keyBytes);
+            crc.update(map.slice(offset + HEADER + keyLength, dataLength));
+
+            if ((int) crc.getValue() != map.getInt(offset + 12)) {
+                log.warn("thumbnail segment truncated: " + segment.path.getFileName() + " at " + offset);
+                break;
+            }
+
+            records.add(new Record(type, new String(keyBytes, StandardCharsets.UTF_8), map.getLong(offset + 16),
+                    offset, offset + HEADER + keyLength, dataLength));
+
+            offset = end;
+        }
+        return records;
+    }
+
+    // 세그먼트 파일을 열고 전체를 매핑한다. (새 파일은 segment-size 크기의 빈 파일이 된다.)
+    private Segment open(int id) throws IOException {
+
+        Path path = directory.resolve(String.format("segment-%06d.thumbs", id));
+
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = Math.max(channel.size(), segmentSize);
+
+        Segment segment = new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+
+        segments.put(id, segment);
+        active = segment; // 번호가 가장 큰 세그먼트에 이어서 쓴다.
+
+        return segment;
+    }
+
+    private long total(ToLongFunction<Segment> bytes) {
+        return segments.values().stream().mapToLong(bytes).sum();
+    }
+
+    private static final class Segment {
+
+        private final int id;
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer map;
+
+        private final AtomicLong live = new AtomicLong(); // 색인이 가리키는 레코드 바이트 수
+
+        private volatile int position; // 다음 레코드를 쓸 위치 (= 사용한 바이트 수)
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer map) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.map = map;
+        }
+    }
+
+    private record Location(Segment segment, int offset, int dataOffset, int length, long lastModified,
+                            int recordLength) {
+
+        // 다른 요청과 위치를 공유하지 않는 읽기 전용 뷰
+        ByteBuffer data() {
+            return segment.map.slice(dataOffset, length).asReadOnlyBuffer();
+        }
+    }
+
+    private record Record(byte type, String key, long value, int offset, int dataOffset, int dataLength) {
+
+        int length() {
+            return dataOffset - offset + dataLength;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.zerock.b01.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.zerock.b01.support.TimeOrderedUuid;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 업로드된 이미지의 섬네일(s_uuid_파일명)을 thumbnailExecutor에서 생성해서 ThumbnailStore에 저장한다.
+ * 업로드 요청은 원본 저장 후 바로 반환되고, 아직 생성되지 않은 섬네일은 조회 시점에 생성한다.
+ * 같은 파일에 대한 작업은 하나만 실행된다. (업로드 작업과 조회 시 생성이 겹치면 먼저 시작된 작업을 기다린다.)
+ */
+@Service
+@Log4j2
+public class ThumbnailService {
+
+    public enum Status { PENDING, READY, MISSING, NOT_FOUND }
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 200;
+
+    private final ThreadPoolExecutor thumbnailExecutor;
+
+    private final UploadStorage uploadStorage;
+
+    private final ThumbnailStore thumbnailStore; // 파일(flat) 또는 세그먼트(segment)
+
+    private final ImageResizer imageResizer; // 서브샘플링 디코딩, 디코딩 메모리 예산
+
+    private final Duration viewTimeout;
+
+    // 파일명(uuid_원본이름) -> 진행 중인 작업 (끝나면 제거)
+    private final ConcurrentHashMap<String, CompletableFuture<ThumbnailStore.Thumbnail>> inFlight = new ConcurrentHashMap<>();
+
+    private final Timer waitTimer;     // 제출부터 작업 시작까지 (큐 대기)
+    private final Timer processTimer;  // 섬네일 생성 시간
+
+    public ThumbnailService(@Qualifier("thumbnailExecutor") ThreadPoolExecutor thumbnailExecutor,
+                            UploadStorage uploadStorage,
+                            ThumbnailStore thumbnailStore,
+                            ImageResizer imageResizer,
+                            @Value("${org.zerock.upload.thumbnail.view-timeout:5s}") Duration viewTimeout,
+                            MeterRegistry meterRegistry) {
+
+        this.thumbnailExecutor = thumbnailExecutor;
+        this.uploadStorage = uploadStorage;
+        this.thumbnailStore = thumbnailStore;
+        this.imageResizer = imageResizer;
+        this.viewTimeout = viewTimeout;
+
+        // executor.queued(큐 길이), executor.active, executor.completed 등
+        new ExecutorServiceMetrics(thumbnailExecutor, "thumbnail", List.of()).bindTo(meterRegistry);
+
+        this.waitTimer = Timer.builder("upload.thumbnail.wait").register(meterRegistry);
+        this.processTimer = Timer.builder("upload.thumbnail.process").register(meterRegistry);
+    }
+
+    // 업로드 직후 호출 : 큐에 넣고 바로 반환 (큐가 가득 차면 호출한 스레드에서 생성)
+    // fileName : 업로드 폴더에 저장된 원본 파일 이름, 같은 내용의 섬네일이 이미 있으면 만들지 않는다.
+    public void submit(String fileName) {
+
+        if (thumbnailStore.exists(fileName)) {
+            return;
+        }
+
+        CompletableFuture<ThumbnailStore.Thumbnail> created = new CompletableFuture<>();
+
+        if (inFlight.putIfAbsent(fileName, created) != null) {
+            return;
+        }
+
+        long submitted = System.nanoTime();
+
+        try {
+            thumbnailExecutor.execute(() -> {
+
+                waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+
+                try {
+                    if (!created.isDone()) { // 취소된 작업은 건너뛴다.
+                        created.complete(generate(fileName));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("thumbnail failed: " + fileName + " " + e.getMessage());
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(fileName, created);
+                }
+            });
+
+        } catch (RejectedExecutionException e) { // 종료 중 : 조회할 때 생성된다.
+            inFlight.remove(fileName, created);
+            created.cancel(false);
+        }
+    }
+
+    public boolean exists(String fileName) {
+        return thumbnailStore.exists(fileName);
+    }
+
+    public Status status(String fileName) {
+
+        if (inFlight.containsKey(fileName)) {
+            return Status.PENDING;
+        }
+        if (thumbnailStore.exists(fileName)) {
+            return Status.READY;
+        }
+        // 원본은 있는데 섬네일이 없으면 조회할 때 생성된다.
+        return Files.exists(uploadStorage.original(fileName)) ? Status.MISSING : Status.NOT_FOUND;
+    }
+
+    /**
+     * 저장된 섬네일을 반환한다. 아직 없으면 진행 중인 작업을 기다리거나 현재 스레드에서 생성한다.
+     * 잘못된 이름이거나 원본이 없거나 생성에 실패하면 null
+     */
+    public ThumbnailStore.Thumbnail ensure(String fileName) {
+
+        if (!uploadStorage.isValidName(fileName)) {
+            return null;
+        }
+
+        ThumbnailStore.Thumbnail thumbnail = thumbnailStore.get(fileName);
+
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        if (!Files.exists(uploadStorage.original(fileName))) {
+            return null;
+        }
+
+        CompletableFuture<ThumbnailStore.Thumbnail> created = new CompletableFuture<>();
+        CompletableFuture<ThumbnailStore.Thumbnail> running = inFlight.putIfAbsent(fileName, created);
+
+        try {
+            if (running != null) {
+                return running.get(viewTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+
+            try {
+                ThumbnailStore.Thumbnail generated = generate(fileName);
+                created.complete(generated);
+                return generated;
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(fileName, created);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            log.warn("thumbnail on demand failed: " + fileName + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 파일 삭제 시 : 아직 시작하지 않은 작업은 취소 (이미 생성 중이면 원본이 없어서 실패하거나 삭제 후 남을 수 있다.)
+    public void cancel(String fileName) {
+
+        CompletableFuture<ThumbnailStore.Thumbnail> running = inFlight.remove(fileName);
+
+        if (running != null) {
+            running.cancel(false);
+        }
+    }
+
+    // 원본 삭제 시 : 진행 중인 작업을 취소하고 저장된 섬네일을 삭제, 삭제한 바이트 수를 반환
+    public long delete(String fileName) throws IOException {
+
+        cancel(fileName);
+
+        return thumbnailStore.delete(fileName);
+    }
+
+    // 임시 파일에 만든 뒤 저장소에 넣어서, 조회 요청이 만들다 만 섬네일을 읽지 않도록 한다.
+    private ThumbnailStore.Thumbnail generate(String fileName) {
+
+        long start = System.nanoTime();
+
+        Path source = uploadStorage.original(fileName);
+
+        Path temp = null;
+
+        try {
+            // 업로드 폴더와 같은 파일 시스템 (flat 저장소는 이름만 바꾼다.), 확장자로 이미지 형식이 정해진다.
+            temp = uploadStorage.base().resolve("tmp_" + TimeOrderedUuid.next() + "_" + fileName);
+
+            imageResizer.resize(source, WIDTH, HEIGHT, temp);
+            thumbnailStore.put(fileName, temp);
+            return thumbnailStore.get(fileName);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+
+        } finally {
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+            }
+            processTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.zerock.b01.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * 섬네일(s_) 저장소. org.zerock.upload.thumbnail.store 로 선택한다.
+ * flat : 업로드 폴더에 섬네일마다 파일 하나 (FlatThumbnailStore, 기본값)
+ * segment : 큰 세그먼트 파일에 이어 붙이고 메모리 매핑으로 읽는다. (SegmentThumbnailStore)
+ * storageName은 업로드 폴더에 저장된 원본 파일 이름이다.
+ */
+public interface ThumbnailStore {
+
+    boolean exists(String storageName);
+
+    // 만들어 둔 섬네일 이미지 파일(image)을 저장한다. image는 호출한 쪽에서 삭제한다.
+    void put(String storageName, Path image) throws IOException;
+
+    // 저장된 섬네일 (없으면 null)
+    Thumbnail get(String storageName);
+
+    // 삭제한 바이트 수 (없으면 0)
+    long delete(String storageName) throws IOException;
+
+    // 파일(file) 또는 메모리 매핑된 내용(data) 중 하나
+    record Thumbnail(Path file, ByteBuffer data, long lastModified) {
+
+        static Thumbnail ofFile(Path file, long lastModified) {
+            return new Thumbnail(file, null, lastModified);
+        }
+
+        static Thumbnail ofData(ByteBuffer data, long lastModified) {
+            return new Thumbnail(null, data, lastModified);
+        }
+    }
+}
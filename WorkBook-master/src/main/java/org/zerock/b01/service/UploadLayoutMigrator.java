@@ -0,0 +1,127 @@
+package org.zerock.b01.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 평평한 업로드 폴더의 파일을 UploadStorage의 하위 폴더 배치로 옮긴다. (서비스 중에 실행)
+ * org.zerock.upload.layout.migrate=true 로 시작하면 백그라운드에서 한 번 실행된다.
+ * 옮길 파일은 "아직 최상위 폴더에 남아 있는 파일"이므로, 중간에 멈춰도 다시 실행하면 남은 파일부터 이어서 옮긴다.
+ * 조회/삭제는 두 배치를 모두 확인하므로 옮기는 중에도 파일을 찾을 수 있다.
+ */
+@Component
+@Log4j2
+public class UploadLayoutMigrator {
+
+    // 업로드 파일만 옮긴다. (uuid_원본이름, 내용 해시, 각각의 섬네일) 색인 스냅샷, 임시 파일, 폴더는 제외
+    private static final Pattern UPLOAD_FILE = Pattern.compile(
+            "(s_)?([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_.+|[0-9a-f]{64}(\\.[0-9a-z]+)?)");
+
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final UploadStorage uploadStorage;
+
+    private final boolean enabled;
+
+    private final int threads;
+
+    public UploadLayoutMigrator(UploadStorage uploadStorage,
+                                @Value("${org.zerock.upload.layout.migrate:false}") boolean enabled,
+                                @Value("${org.zerock.upload.layout.migrate-threads:4}") int threads) {
+        this.uploadStorage = uploadStorage;
+        this.enabled = enabled;
+        this.threads = threads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+
+        if (!enabled) {
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                migrate();
+            } catch (Exception e) {
+                log.error("upload layout migration stopped (run again to resume): " + e.getMessage());
+            }
+        }, "upload-layout-migrator");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // 옮긴 파일 수를 반환한다.
+    public long migrate() throws IOException, InterruptedException {
+
+        Path base = uploadStorage.base();
+
+        AtomicLong moved = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        // 디렉터리를 읽는 스레드가 큐를 채우고, 가득 차면 직접 옮긴다.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 100), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        log.info("upload layout migration started: " + base);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(base)) {
+
+            for (Path file : stream) {
+
+                String fileName = file.getFileName().toString();
+
+                if (!UPLOAD_FILE.matcher(fileName).matches() || !Files.isRegularFile(file)) {
+                    continue;
+                }
+
+                executor.execute(() -> {
+                    try {
+                        if (move(file, fileName) && moved.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                            log.info("upload layout migration: " + moved.get() + " files moved");
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                        log.warn("upload layout migration failed: " + fileName + " " + e.getMessage());
+                    }
+                });
+            }
+
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+
+        log.info("upload layout migration finished: " + moved.get() + " moved, " + failed.get() + " failed");
+
+        return moved.get();
+    }
+
+    // 같은 파일 시스템 안에서 이름만 바꾸므로 원자적이다. 이미 새 위치에 있으면 남은 파일만 지운다.
+    private boolean move(Path file, String fileName) throws IOException {
+
+        Path target = uploadStorage.newFile(fileName);
+
+        if (Files.exists(target)) {
+            Files.deleteIfExists(file);
+            return false;
+        }
+
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) { // 옮기는 사이에 삭제됨
+            return false;
+        }
+    }
+}
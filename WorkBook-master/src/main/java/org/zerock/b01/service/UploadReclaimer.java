@@ -0,0 +1,268 @@
+package org.zerock.b01.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zerock.b01.domain.ContentBlob;
+import org.zerock.b01.domain.UploadFile;
+import org.zerock.b01.repository.BoardImageRepository;
+import org.zerock.b01.repository.ContentBlobRepository;
+import org.zerock.b01.repository.UploadFileRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 업로드 파일 정리.
+ *  - 게시물 삭제 시 첨부파일은 큐에 넣고, 요청 스레드가 아닌 스케줄러에서 묶어서 삭제한다.
+ *  - 주기적으로 업로드 폴더와 upload_file을 게시물 첨부(board_image)와 비교해서,
+ *    유예 기간(grace)보다 오래된 첨부되지 않은 파일(작성하다 그만둔 게시물 등)을 삭제한다.
+ * 삭제 수/바이트는 upload.reclaim.files, upload.reclaim.bytes (source=queue|reconcile) 로 확인한다.
+ */
+@Component
+@Log4j2
+public class UploadReclaimer {
+
+    private static final Pattern LEGACY_FILE = Pattern.compile(
+            "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})_.+");
+
+    private static final Pattern BLOB_FILE = Pattern.compile("([0-9a-f]{64})(\\.[0-9a-z]+)?");
+
+    private final UploadService uploadService;
+
+    private final UploadStorage uploadStorage;
+
+    private final UploadFileRepository uploadFileRepository;
+
+    private final BoardImageRepository boardImageRepository;
+
+    private final ContentBlobRepository contentBlobRepository;
+
+    private final Duration grace;
+
+    private final int batchSize;
+
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+    private final AtomicLong scanned = new AtomicLong(); // 현재(또는 마지막) 정리 작업에서 확인한 파일/행 수
+
+    private final MeterRegistry meterRegistry;
+
+    public UploadReclaimer(UploadService uploadService,
+                           UploadStorage uploadStorage,
+                           UploadFileRepository uploadFileRepository,
+                           BoardImageRepository boardImageRepository,
+                           ContentBlobRepository contentBlobRepository,
+                           @Value("${org.zerock.upload.reclaim.grace:24h}") Duration grace,
+                           @Value("${org.zerock.upload.reclaim.batch-size:500}") int batchSize,
+                           MeterRegistry meterRegistry) {
+
+        this.uploadService = uploadService;
+        this.uploadStorage = uploadStorage;
+        this.uploadFileRepository = uploadFileRepository;
+        this.boardImageRepository = boardImageRepository;
+        this.contentBlobRepository = contentBlobRepository;
+        this.grace = grace;
+        this.batchSize = batchSize;
+        this.meterRegistry = meterRegistry;
+
+        meterRegistry.gaugeCollectionSize("upload.reclaim.queue", List.of(), queue);
+        meterRegistry.gauge("upload.reclaim.scanned", scanned);
+    }
+
+    // 게시물 삭제 후 첨부파일 (uuid_원본이름) 삭제 요청
+    public void enqueue(Collection<String> fileNames) {
+        queue.addAll(fileNames);
+    }
+
+    @Scheduled(fixedDelayString = "${org.zerock.upload.reclaim.queue-interval:1000}")
+    public void drain() {
+
+        List<String> batch = new ArrayList<>(batchSize);
+
+        while (queue.drainTo(batch, batchSize) > 0) {
+
+            for (String fileName : batch) {
+                try {
+                    record("queue", uploadService.reclaim(fileName));
+                } catch (RuntimeException e) {
+                    log.warn("upload reclaim failed: " + fileName + " " + e.getMessage());
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    @Scheduled(cron = "${org.zerock.upload.reclaim.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+
+        scanned.set(0);
+
+        LocalDateTime before = LocalDateTime.now().minus(grace);
+
+        long files = reconcileUploads(before) + reconcileFiles(before.atZone(ZoneId.systemDefault()).toInstant());
+
+        log.info("upload reconcile finished: " + scanned.get() + " scanned, " + files + " reclaimed");
+    }
+
+    // upload_file 중 첨부되지 않은 것 (uuid 순서로 끊어서 조회)
+    private long reconcileUploads(LocalDateTime before) {
+
+        long reclaimed = 0;
+        UUID after = new UUID(0, 0); // BINARY(16) 비교에서 가장 작은 값
+
+        while (true) {
+
+            List<UploadFile> orphans = uploadFileRepository.findOrphans(after, before, PageRequest.of(0, batchSize));
+
+            for (UploadFile orphan : orphans) {
+                if (record("reconcile", uploadService.reclaim(orphan.getUuid() + "_" + orphan.getFileName())) >= 0) {
+                    reclaimed++;
+                }
+            }
+
+            scanned.addAndGet(orphans.size());
+
+            if (orphans.size() < batchSize) {
+                return reclaimed;
+            }
+            after = orphans.get(orphans.size() - 1).getUuid();
+        }
+    }
+
+    // 업로드 폴더를 스트리밍으로 훑으면서 DB에 없는 파일을 묶어서 확인
+    // (upload_file이 없는 이전 방식 파일 중 첨부되지 않은 것, content_blob이 없는 내용 파일, 남은 임시 파일)
+    private long reconcileFiles(Instant before) {
+
+        List<Path> legacy = new ArrayList<>(batchSize);
+        List<Path> blobs = new ArrayList<>(batchSize);
+        long[] reclaimed = {0};
+
+        try (Stream<Path> stream = Files.walk(uploadStorage.base(), 3)) {
+
+            stream.filter(path -> isOlder(path, before)).forEach(path -> {
+
+                String name = path.getFileName().toString();
+
+                scanned.incrementAndGet();
+
+                if (name.startsWith("tmp_")) {
+                    reclaimed[0] += deleteTemp(path);
+                } else if (LEGACY_FILE.matcher(name).matches()) {
+                    legacy.add(path);
+                } else if (BLOB_FILE.matcher(name).matches()) {
+                    blobs.add(path);
+                }
+
+                if (legacy.size() >= batchSize) {
+                    reclaimed[0] += reclaimLegacy(legacy);
+                }
+                if (blobs.size() >= batchSize) {
+                    reclaimed[0] += reclaimBlobs(blobs);
+                }
+            });
+
+        } catch (IOException | UncheckedIOException e) {
+            log.error("upload reconcile scan failed: " + e.getMessage());
+        }
+
+        return reclaimed[0] + reclaimLegacy(legacy) + reclaimBlobs(blobs);
+    }
+
+    private long reclaimLegacy(List<Path> files) {
+
+        Map<UUID, String> byUuid = files.stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toMap(name -> UUID.fromString(name.substring(0, 36)), name -> name, (a, b) -> a));
+
+        files.clear();
+
+        if (byUuid.isEmpty()) {
+            return 0;
+        }
+
+        Set<UUID> kept = new HashSet<>(boardImageRepository.findAttachedUuids(byUuid.keySet()));
+        uploadFileRepository.findAllById(byUuid.keySet()).forEach(uploadFile -> kept.add(uploadFile.getUuid()));
+
+        long reclaimed = 0;
+
+        for (Map.Entry<UUID, String> entry : byUuid.entrySet()) {
+            if (!kept.contains(entry.getKey()) && record("reconcile", uploadService.reclaim(entry.getValue())) >= 0) {
+                reclaimed++;
+            }
+        }
+        return reclaimed;
+    }
+
+    private long reclaimBlobs(List<Path> files) {
+
+        Map<String, String> byHash = files.stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toMap(UploadStorage::key, name -> name, (a, b) -> a));
+
+        files.clear();
+
+        if (byHash.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> kept = contentBlobRepository.findAllById(byHash.keySet()).stream()
+                .map(ContentBlob::getHash)
+                .collect(Collectors.toSet());
+
+        long reclaimed = 0;
+
+        for (Map.Entry<String, String> entry : byHash.entrySet()) {
+            if (!kept.contains(entry.getKey()) && record("reconcile", uploadService.reclaimUnreferenced(entry.getValue())) > 0) {
+                reclaimed++;
+            }
+        }
+        return reclaimed;
+    }
+
+    private long deleteTemp(Path path) {
+        try {
+            long size = Files.size(path);
+            if (Files.deleteIfExists(path)) {
+                record("reconcile", size);
+                return 1;
+            }
+        } catch (IOException e) {
+            log.warn("upload temp delete failed: " + path.getFileName() + " " + e.getMessage());
+        }
+        return 0;
+    }
+
+    private long record(String source, long bytes) {
+
+        if (bytes >= 0) {
+            Counter.builder("upload.reclaim.files").tag("source", source).register(meterRegistry).increment();
+            Counter.builder("upload.reclaim.bytes").tag("source", source).register(meterRegistry).increment(bytes);
+        }
+        return bytes;
+    }
+
+    private static boolean isOlder(Path path, Instant before) {
+        try {
+            return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toInstant().isBefore(before);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.zerock.b01.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import org.zerock.b01.dto.upload.UploadResultDTO;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// 업로드 파일 저장소 : 내용(SHA-256)이 같은 파일은 한 번만 저장하고 참조 수로 관리한다.
+public interface UploadService {
+
+    UploadResultDTO store(MultipartFile multipartFile) throws IOException;
+
+    // fileName : uuid_원본이름 -> 업로드 폴더의 실제 파일 (잘못된 이름이거나 섬네일(s_) 이름이면 null)
+    Path resolve(String fileName);
+
+    // uuid_원본이름 -> 업로드 폴더에 저장된 원본 파일 이름 (섬네일 생성/상태 조회용)
+    String storageName(String fileName);
+
+    // 참조를 하나 제거하고, 마지막 참조였다면 파일과 섬네일을 삭제한다.
+    boolean remove(String fileName);
+
+    // remove()와 같고, 실제로 삭제된 바이트 수를 반환한다. (참조가 남으면 0, 파일이 없으면 -1)
+    long reclaim(String fileName);
+
+    // content_blob 행이 없는 내용 파일(hash.확장자) 삭제 (업로드 중 실패로 남은 파일)
+    long reclaimUnreferenced(String storageName);
+}
@@ -0,0 +1,286 @@
+package org.zerock.b01.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.zerock.b01.cache.ThumbnailMemoryCache;
+import org.zerock.b01.domain.ContentBlob;
+import org.zerock.b01.domain.UploadFile;
+import org.zerock.b01.dto.upload.UploadResultDTO;
+import org.zerock.b01.repository.ContentBlobRepository;
+import org.zerock.b01.repository.UploadFileRepository;
+import org.zerock.b01.support.TimeOrderedUuid;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 업로드 파일을 내용의 SHA-256 해시 이름(hash.확장자)으로 업로드 폴더에 저장한다.
+ * 화면/게시물에는 지금처럼 uuid_원본이름을 사용하고, 조회 시 UploadFile -> ContentBlob로 실제 파일을 찾는다.
+ * 파일 이동/삭제와 참조 수 변경은 해시별 잠금 안에서 처리해서, 같은 내용의 업로드와 마지막 참조 삭제가 겹쳐도 파일이 사라지지 않는다.
+ */
+@Service
+@Log4j2
+public class UploadServiceImpl implements UploadService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ContentBlobRepository contentBlobRepository;
+
+    private final UploadFileRepository uploadFileRepository;
+
+    private final ThumbnailService thumbnailService;
+
+    private final ImageVariantService imageVariantService;
+
+    private final ThumbnailMemoryCache thumbnailMemoryCache; // 자주 조회되는 섬네일 (힙 밖 메모리)
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final UploadStorage uploadStorage; // 하위 폴더 배치
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // uuid -> 저장된 파일 이름 (업로드 후에는 바뀌지 않으므로 삭제될 때만 제거)
+    private final Cache<UUID, String> storageNames = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public UploadServiceImpl(ContentBlobRepository contentBlobRepository,
+                             UploadFileRepository uploadFileRepository,
+                             ThumbnailService thumbnailService,
+                             ImageVariantService imageVariantService,
+                             ThumbnailMemoryCache thumbnailMemoryCache,
+                             UploadStorage uploadStorage,
+                             PlatformTransactionManager transactionManager) {
+
+        this.contentBlobRepository = contentBlobRepository;
+        this.uploadFileRepository = uploadFileRepository;
+        this.thumbnailService = thumbnailService;
+        this.imageVariantService = imageVariantService;
+        this.thumbnailMemoryCache = thumbnailMemoryCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.uploadStorage = uploadStorage;
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public UploadResultDTO store(MultipartFile multipartFile) throws IOException {
+
+        String originalName = multipartFile.getOriginalFilename();
+        UUID uuid = TimeOrderedUuid.next();
+
+        boolean image = MediaTypeFactory.getMediaType(originalName)
+                .map(mediaType -> "image".equals(mediaType.getType()))
+                .orElse(false);
+
+        // 임시 파일에 쓰면서 해시를 계산한다. (파일을 다시 읽지 않는다.)
+        Path temp = uploadStorage.base().resolve("tmp_" + uuid); // 같은 파일 시스템이어야 이동이 원자적이다.
+
+        MessageDigest digest = sha256();
+
+        try (InputStream in = new DigestInputStream(multipartFile.getInputStream(), digest)) {
+            Files.copy(in, temp);
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        String ext = extension(originalName);
+        long size = Files.size(temp);
+
+        String storageName;
+
+        try {
+            synchronized (lock(hash)) {
+
+                Optional<ContentBlob> existing = contentBlobRepository.findById(hash);
+
+                // 이미 같은 내용이 있으면 처음 저장한 파일(확장자)을 그대로 사용
+                storageName = existing.map(ContentBlob::getStorageName).orElse(ContentBlob.storageName(hash, ext));
+
+                if (!Files.exists(uploadStorage.original(storageName))) {
+                    Files.move(temp, uploadStorage.newFile(storageName), StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    contentBlobRepository.addReference(hash, ext, size, image);
+                    uploadFileRepository.save(UploadFile.builder().uuid(uuid).hash(hash).fileName(originalName).build());
+                });
+            }
+        } finally {
+            Files.deleteIfExists(temp); // 같은 내용이 이미 있었거나 실패한 경우
+        }
+
+        storageNames.put(uuid, storageName);
+
+        // 같은 내용의 섬네일이 이미 있으면 다시 만들지 않는다.
+        if (image) {
+            thumbnailService.submit(storageName);
+        }
+
+        return UploadResultDTO.builder()
+                .uuid(uuid.toString())
+                .fileName(originalName)
+                .img(image)
+                .build();
+    }
+
+    @Override
+    public Path resolve(String fileName) {
+
+        // 업로드 폴더 밖의 파일 요청 차단
+        if (!uploadStorage.isValidName(fileName)) {
+            return null;
+        }
+
+        // 섬네일은 ThumbnailService.ensure()로 조회한다. (저장 방식이 설정에 따라 다르다.)
+        if (fileName.startsWith("s_")) {
+            return null;
+        }
+
+        return uploadStorage.original(storageName(fileName));
+    }
+
+    @Override
+    public String storageName(String fileName) {
+
+        UUID uuid = uuidOf(fileName);
+
+        if (uuid == null) {
+            return fileName;
+        }
+
+        return storageNames.get(uuid, key -> contentBlobRepository.findByUuid(key)
+                .map(ContentBlob::getStorageName)
+                .orElse(fileName)); // 이전 방식으로 저장된 파일
+    }
+
+    @Override
+    public boolean remove(String fileName) {
+        return reclaim(fileName) >= 0;
+    }
+
+    @Override
+    public long reclaim(String fileName) {
+
+        UUID uuid = uuidOf(fileName);
+
+        Optional<UploadFile> uploadFile = uuid == null ? Optional.empty() : uploadFileRepository.findById(uuid);
+
+        if (uploadFile.isEmpty()) {
+            return removeLegacy(fileName);
+        }
+
+        String hash = uploadFile.get().getHash();
+
+        storageNames.invalidate(uuid);
+
+        synchronized (lock(hash)) {
+
+            ContentBlob blob = contentBlobRepository.findById(hash).orElse(null);
+
+            Boolean last = transactionTemplate.execute(status -> {
+                uploadFileRepository.deleteById(uuid);
+                contentBlobRepository.removeReference(hash);
+                return contentBlobRepository.deleteIfUnreferenced(hash) == 1;
+            });
+
+            if (Boolean.TRUE.equals(last) && blob != null) {
+                return deleteFiles(blob.getStorageName());
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long reclaimUnreferenced(String storageName) {
+
+        String hash = UploadStorage.key(storageName);
+
+        synchronized (lock(hash)) {
+            // 잠금 안에서 다시 확인 (그 사이에 같은 내용이 업로드되었을 수 있다.)
+            return contentBlobRepository.existsById(hash) ? 0 : deleteFiles(storageName);
+        }
+    }
+
+    // 이전 방식 : 업로드 폴더의 uuid_원본이름 파일과 섬네일을 바로 삭제 (파일이 없으면 -1)
+    private long removeLegacy(String fileName) {
+
+        Path file = resolve(fileName);
+
+        if (file == null || fileName.startsWith("s_") || !Files.exists(file)) {
+            return -1;
+        }
+
+        return deleteFiles(fileName);
+    }
+
+    // 삭제한 바이트 수 (원본 + 섬네일)
+    private long deleteFiles(String storageName) {
+
+        imageVariantService.remove(storageName);
+        thumbnailMemoryCache.invalidate("s_" + storageName);
+
+        try {
+            return uploadStorage.delete(storageName) + thumbnailService.delete(storageName);
+        } catch (IOException e) {
+            log.error("upload file delete failed: " + storageName + " " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private Object lock(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    // uuid_원본이름에서 uuid 부분 (형식이 다르면 null)
+    private static UUID uuidOf(String fileName) {
+
+        int index = fileName.indexOf('_');
+
+        if (index != 36) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(fileName.substring(0, index));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String extension(String fileName) {
+
+        int index = fileName == null ? -1 : fileName.lastIndexOf('.');
+
+        if (index < 0 || index == fileName.length() - 1) {
+            return "";
+        }
+
+        String ext = fileName.substring(index + 1).toLowerCase(Locale.ROOT);
+
+        // 확장자는 파일 이름에 그대로 쓰이므로 영문/숫자만 허용
+        return ext.length() <= 10 && ext.chars().allMatch(c -> c < 128 && Character.isLetterOrDigit(c)) ? ext : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.zerock.b01.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 업로드 폴더의 파일 배치.
+ * 파일은 저장 키(내용 해시, 이전 방식 파일은 uuid)의 해시값으로 만든 2단계 하위 폴더(예: 3f/a0/)에 저장한다.
+ * 섬네일(s_)은 원본과 같은 폴더에 둔다. (org.zerock.upload.thumbnail.store=flat 일 때)
+ * 이전의 평평한 배치에 남아 있는 파일도 찾을 수 있으므로, 옮기는 중(UploadLayoutMigrator)에도 조회/삭제가 된다.
+ */
+@Component
+@Log4j2
+public class UploadStorage {
+
+    private final Path base;
+
+    public UploadStorage(@Value("${org.zerock.upload.path}") String uploadPath) {
+        this.base = Paths.get(uploadPath).toAbsolutePath().normalize();
+    }
+
+    public Path base() {
+        return base;
+    }
+
+    // URL 등에서 받은 이름이 파일 하나의 이름인지 (경로 구분자, ".." 차단)
+    public boolean isValidName(String fileName) {
+        return !fileName.isEmpty()
+                && fileName.indexOf('/') < 0 && fileName.indexOf('\\') < 0
+                && !fileName.equals(".") && !fileName.equals("..");
+    }
+
+    // 저장된 원본 (없으면 새로 저장될 위치)
+    public Path original(String storageName) {
+        return locate(storageName);
+    }
+
+    public Path thumbnail(String storageName) {
+        return locate("s_" + storageName);
+    }
+
+    // 새 파일을 쓸 위치 (하위 폴더를 만든다.)
+    public Path newFile(String fileName) throws IOException {
+
+        Path path = sharded(fileName);
+
+        Files.createDirectories(path.getParent());
+
+        return path;
+    }
+
+    // 두 배치 모두에서 삭제 (옮기는 중이어도 남지 않도록), 삭제한 바이트 수를 반환
+    // 섬네일(s_)은 ThumbnailStore를 통해 삭제한다.
+    public long delete(String fileName) throws IOException {
+
+        long bytes = 0;
+
+        for (Path path : new Path[]{sharded(fileName), base.resolve(fileName)}) {
+            long size = Files.exists(path) ? Files.size(path) : 0;
+            if (Files.deleteIfExists(path)) {
+                bytes += size;
+            }
+        }
+        return bytes;
+    }
+
+    public Path sharded(String fileName) {
+
+        int hash = key(fileName).hashCode(); // String.hashCode()는 JVM과 관계없이 항상 같다.
+
+        return base.resolve(hex(hash)).resolve(hex(hash >>> 8)).resolve(fileName);
+    }
+
+    public Path flat(String fileName) {
+        return base.resolve(fileName);
+    }
+
+    // 하위 폴더 위치를 정하는 키 : 섬네일 접두어를 뺀 uuid(이전 방식) 또는 내용 해시
+    static String key(String fileName) {
+
+        String name = fileName.startsWith("s_") ? fileName.substring(2) : fileName;
+
+        if (name.length() > 36 && name.charAt(36) == '_') { // uuid_원본이름
+            return name.substring(0, 36);
+        }
+
+        int dot = name.indexOf('.');
+
+        return dot < 0 ? name : name.substring(0, dot); // hash.확장자
+    }
+
+    // 새 배치를 먼저 보고, 이전 배치를 본 다음, 그 사이에 옮겨졌을 수 있으므로 새 배치를 한 번 더 본다.
+    private Path locate(String fileName) {
+
+        Path sharded = sharded(fileName);
+
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+
+        Path flat = base.resolve(fileName);
+
+        if (Files.exists(flat)) {
+            return flat;
+        }
+
+        return sharded;
+    }
+
+    private static String hex(int value) {
+
+        String hex = Integer.toHexString(value & 0xff);
+
+        return hex.length() == 1 ? "0" + hex : hex;
+    }
+}
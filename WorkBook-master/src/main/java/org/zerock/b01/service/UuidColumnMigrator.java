@@ -0,0 +1,60 @@
+package org.zerock.b01.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * board_image.uuid, upload_file.uuid 를 문자열(36자)에서 BINARY(16)으로 바꾼다. (ddl-auto=update는 칼럼 형식을 바꾸지 않는다.)
+ * 시작할 때마다 칼럼 형식을 확인하고, 이미 binary이면 아무것도 하지 않는다.
+ * 단계마다 다시 실행할 수 있으므로 중간에 멈춰도 다음 시작 때 이어서 진행한다.
+ * (EntityManagerFactory 다음에 실행되고 웹 요청을 받기 전에 끝난다.)
+ *
+ * 수동으로 옮길 때는 아래와 같다. (upload_file도 같다.)
+ *   alter table board_image add column if not exists uuid_bin binary(16);
+ *   update board_image set uuid_bin = unhex(replace(uuid, '-', '')) where uuid_bin is null;
+ *   alter table board_image drop primary key, drop column uuid,
+ *       change column uuid_bin uuid binary(16) not null, add primary key (uuid);
+ */
+@Component
+@Log4j2
+public class UuidColumnMigrator {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UuidColumnMigrator(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate; // entityManagerFactory는 실행 순서를 위해서만 받는다.
+    }
+
+    @PostConstruct
+    public void migrate() {
+        migrate("board_image");
+        migrate("upload_file");
+    }
+
+    private void migrate(String table) {
+
+        String type = jdbcTemplate.query("select data_type from information_schema.columns " +
+                        "where table_schema = database() and table_name = ? and column_name = 'uuid'",
+                rs -> rs.next() ? rs.getString(1) : null, table);
+
+        if (type == null || type.equalsIgnoreCase("binary")) {
+            return;
+        }
+
+        log.info(table + ".uuid migration started: " + type + " -> binary(16)");
+
+        jdbcTemplate.execute("alter table " + table + " add column if not exists uuid_bin binary(16)");
+
+        int converted = jdbcTemplate.update("update " + table +
+                " set uuid_bin = unhex(replace(uuid, '-', '')) where uuid_bin is null");
+
+        // uuid 형식이 아닌 값이 있으면 not null 변경에서 실패한다. (해당 행을 고친 뒤 다시 시작)
+        jdbcTemplate.execute("alter table " + table + " drop primary key, drop column uuid, " +
+                "change column uuid_bin uuid binary(16) not null, add primary key (uuid)");
+
+        log.info(table + ".uuid migration finished: " + converted + " rows");
+    }
+}
@@ -0,0 +1,26 @@
+package org.zerock.b01.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 트랜잭션 안에서 호출되면 커밋된 후에, 트랜잭션 밖이면 바로 실행한다.
+// (색인/캐시에 롤백된 변경이 반영되거나, 커밋 전의 값이 다시 캐시되는 것을 막기 위해 사용)
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable task) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+}
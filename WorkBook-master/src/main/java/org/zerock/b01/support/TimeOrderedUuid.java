@@ -0,0 +1,45 @@
+package org.zerock.b01.support;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 시간 순서 UUID (RFC 9562 버전 7) : 앞 48비트는 밀리초 시각, 다음 12비트는 같은 밀리초 안의 순번, 나머지 62비트는 난수
+// 새 값이 항상 이전 값보다 커서 BINARY(16) 기본 키의 insert가 인덱스 끝에 모인다. (UUID.randomUUID()는 무작위 위치)
+// 순번은 CAS로만 증가하고, 난수는 스레드마다 따로 만든 SecureRandom을 사용한다. (공유 SecureRandom의 잠금 경쟁이 없다.)
+public final class TimeOrderedUuid {
+
+    private static final int SEQUENCE_BITS = 12;
+
+    // (밀리초 << 12) | 순번 : 한 밀리초에 4096개를 넘으면 다음 밀리초 값을 미리 사용한다.
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(TimeOrderedUuid::newRandom);
+
+    private TimeOrderedUuid() {
+    }
+
+    public static UUID next() {
+
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+
+        long stamp = LAST.updateAndGet(last -> Math.max(now, last + 1));
+
+        long timestamp = stamp >>> SEQUENCE_BITS;
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+
+        long msb = (timestamp << 16) | 0x7000L | sequence; // 버전 7
+        long lsb = (RANDOM.get().nextLong() & 0x3FFF_FFFF_FFFF_FFFFL) | 0x8000_0000_0000_0000L; // variant 10
+
+        return new UUID(msb, lsb);
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG"); // 인스턴스별 잠금만 있다.
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -66,6 +66,15 @@ async function getList({bno, page, size, goLast}){  // 577 추가
 }
 
 
+// 커서 방식 (전체 개수를 세지 않아서 댓글이 많아도 첫/마지막 페이지 비용이 같다.)
+// after : 이 댓글 다음부터 오래된 순, before : 이 댓글 이전부터 최신 순 (0이면 가장 최근 댓글부터)
+async function getListWithCursor({bno, after, before, size}){
+
+    const result = await axios.get(`/replies/list/${bno}`, {params: {after, before, size}})
+
+    return result.data
+}
+
 
 async function addReply(replyObj) { // 584 추가
     const response = await axios.post(`/replies/`,replyObj)
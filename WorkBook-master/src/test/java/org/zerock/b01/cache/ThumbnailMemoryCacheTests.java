@@ -0,0 +1,62 @@
+package org.zerock.b01.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+
+// 섬네일 메모리 캐시 : 슬랩을 모두 사용한 뒤에도 자주 조회되는 섬네일은 계속 올라가는지 (DB 필요 없음)
+@Log4j2
+public class ThumbnailMemoryCacheTests {
+
+    private static final int SMALL = 4 << 10; // 4KB 슬롯, 1MB 슬랩 하나에 256개
+
+    private ThumbnailMemoryCache fill() {
+
+        ThumbnailMemoryCache cache = new ThumbnailMemoryCache(DataSize.ofMegabytes(1), new SimpleMeterRegistry());
+
+        for (int i = 0; i < 256; i++) {
+            cache.offer("s_cold" + i, ByteBuffer.allocate(SMALL), 0, () -> true);
+        }
+
+        Assertions.assertEquals(1 << 20, cache.slabBytes()); // 예산을 모두 사용
+
+        return cache;
+    }
+
+    private static void assertCached(ThumbnailMemoryCache cache, String key, int length) {
+
+        try (ThumbnailMemoryCache.Hit hit = cache.get(key)) {
+            Assertions.assertNotNull(hit);
+            Assertions.assertEquals(length, hit.data().remaining());
+        }
+    }
+
+    @Test
+    public void testAdmitSameSizeWhenFull() {
+
+        ThumbnailMemoryCache cache = fill();
+
+        // 같은 크기의 빈 슬롯이 없으면 가장 덜 사용된 항목을 제거하고 저장
+        cache.offer("s_hot", ByteBuffer.allocate(SMALL), 0, () -> true);
+
+        assertCached(cache, "s_hot", SMALL);
+    }
+
+    @Test
+    public void testAdmitOtherSizeWhenFull() {
+
+        ThumbnailMemoryCache cache = fill();
+
+        // 슬랩이 모두 4KB로 나뉘어 있어도 비워서 다른 크기(64KB)로 다시 나눈다.
+        int large = 64 << 10;
+
+        cache.offer("s_hot", ByteBuffer.allocate(large), 0, () -> true);
+
+        assertCached(cache, "s_hot", large);
+        Assertions.assertEquals(1 << 20, cache.slabBytes()); // 예산은 넘지 않는다.
+    }
+}
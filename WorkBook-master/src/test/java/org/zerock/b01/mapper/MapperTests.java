@@ -0,0 +1,115 @@
+package org.zerock.b01.mapper;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.zerock.b01.config.RootConfig;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.domain.BoardImage;
+import org.zerock.b01.domain.Reply;
+import org.zerock.b01.dto.BoardDTO;
+import org.zerock.b01.dto.BoardImageDTO;
+import org.zerock.b01.dto.ReplyDTO;
+import org.zerock.b01.support.TimeOrderedUuid;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// 생성된 매퍼가 기존 ModelMapper 설정(STRICT, private 필드)과 같은 값을 만드는지 비교 (DB 필요 없음)
+@Log4j2
+public class MapperTests {
+
+    private final ModelMapper modelMapper = new RootConfig().getMapper();
+
+    private final BoardMapper boardMapper = Mappers.getMapper(BoardMapper.class);
+
+    private final ReplyMapper replyMapper = Mappers.getMapper(ReplyMapper.class);
+
+    private final BoardImageMapper boardImageMapper = Mappers.getMapper(BoardImageMapper.class);
+
+    @Test
+    public void testBoardToEntity() {
+
+        BoardDTO boardDTO = BoardDTO.builder()
+                .bno(100L)
+                .title("title")
+                .content("content")
+                .writer("user00")
+                .regDate(LocalDateTime.now())
+                .fileNames(List.of("1111_a.jpg"))
+                .build();
+
+        Board expected = modelMapper.map(boardDTO, Board.class);
+        Board actual = boardMapper.toEntity(boardDTO);
+
+        log.info(actual);
+
+        Assertions.assertEquals(expected.getBno(), actual.getBno());
+        Assertions.assertEquals(expected.getTitle(), actual.getTitle());
+        Assertions.assertEquals(expected.getContent(), actual.getContent());
+        Assertions.assertEquals(expected.getWriter(), actual.getWriter());
+        Assertions.assertEquals(expected.getReplyCount(), actual.getReplyCount());
+        Assertions.assertTrue(actual.getImageSet().isEmpty()); // 첨부파일은 서비스에서 addImage()로 추가
+    }
+
+    @Test
+    public void testBoardToDTO() {
+
+        Board board = Board.builder().bno(100L).title("title").content("content").writer("user00").build();
+
+        BoardDTO expected = modelMapper.map(board, BoardDTO.class);
+        BoardDTO actual = boardMapper.toDTO(board);
+
+        log.info(actual);
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testReply() {
+
+        ReplyDTO replyDTO = ReplyDTO.builder().rno(10L).bno(100L).replyText("text").replyer("replyer").build();
+
+        Reply expected = modelMapper.map(replyDTO, Reply.class);
+        Reply actual = replyMapper.toEntity(replyDTO);
+
+        Assertions.assertEquals(expected.getRno(), actual.getRno());
+        Assertions.assertEquals(expected.getReplyText(), actual.getReplyText());
+        Assertions.assertEquals(expected.getReplyer(), actual.getReplyer());
+        Assertions.assertEquals(100L, actual.getBoard().getBno());
+
+        ReplyDTO expectedDTO = modelMapper.map(actual, ReplyDTO.class);
+        ReplyDTO actualDTO = replyMapper.toDTO(actual);
+
+        log.info(actualDTO);
+
+        Assertions.assertEquals(expectedDTO.getRno(), actualDTO.getRno());
+        Assertions.assertEquals(expectedDTO.getReplyText(), actualDTO.getReplyText());
+        Assertions.assertEquals(expectedDTO.getReplyer(), actualDTO.getReplyer());
+        Assertions.assertEquals(expectedDTO.getRegDate(), actualDTO.getRegDate());
+        Assertions.assertEquals(100L, actualDTO.getBno());
+    }
+
+    @Test
+    public void testBoardImage() {
+
+        UUID uuid = TimeOrderedUuid.next();
+
+        // 엔티티는 UUID, DTO는 uuid 문자열 (ModelMapper에는 문자열 <-> UUID 변환이 없어서 직접 만든 값과 비교)
+        BoardImage boardImage = BoardImage.builder().uuid(uuid).fileName("a.jpg").ord(2).build();
+
+        BoardImageDTO boardImageDTO = BoardImageDTO.builder().uuid(uuid.toString()).fileName("a.jpg").ord(2).build();
+
+        Assertions.assertEquals(boardImageDTO, boardImageMapper.toDTO(boardImage));
+
+        BoardImage expected = BoardImage.builder().uuid(uuid).fileName("a.jpg").ord(2).build();
+        BoardImage actual = boardImageMapper.toEntity(boardImageDTO);
+
+        Assertions.assertEquals(expected.getUuid(), actual.getUuid());
+        Assertions.assertEquals(expected.getFileName(), actual.getFileName());
+        Assertions.assertEquals(expected.getOrd(), actual.getOrd());
+    }
+}
@@ -15,6 +15,7 @@ import org.zerock.b01.domain.BoardImage;
 import org.zerock.b01.dto.BoardListAllDTO;
 import org.zerock.b01.dto.BoardListReplyCountDTO;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -32,21 +33,21 @@ public class BoardRepositoryTests {
 
     @Test
     public void testInsert() {
-        // 1부터 100까지의 숫자 범위를 생성하고 각각의 숫자에 대해 반복 작업을 수행합니다.
-        IntStream.rangeClosed(1, 100).forEach(i -> {
+        // 1부터 100까지의 숫자 범위를 생성하고 각각의 숫자에 대해 게시물을 만듭니다.
+        List<Board> boards = IntStream.rangeClosed(1, 100).mapToObj(i ->
             // 새로운 게시물을 생성합니다.
-            Board board = Board.builder()
+            Board.builder()
                     .title("title..." + i) // 제목을 설정합니다.
                     .content("content..." + i) // 내용을 설정합니다.
                     .writer("user" + (i % 10)) // 작성자를 설정합니다. 작성자는 user1부터 user10까지 순환됩니다.
-                    .build();
+                    .build()
+        ).toList();
 
-            // 생성된 게시물을 저장하고, 결과로 반환된 엔티티를 result 변수에 저장합니다.
-            Board result = boardRepository.save(board);
+        // 한 트랜잭션에서 저장합니다. (시퀀스로 받은 bno이므로 insert가 batch_size씩 묶여서 실행됩니다.)
+        List<Board> result = boardRepository.saveAll(boards);
 
-            // 저장된 게시물의 식별 번호(BNO)를 로그에 출력합니다.
-            log.info("BNO: " + result.getBno());
-        });
+        // 저장된 게시물의 식별 번호(BNO)를 로그에 출력합니다.
+        result.forEach(board -> log.info("BNO: " + board.getBno()));
     }
 
 
@@ -283,6 +284,8 @@ public class BoardRepositoryTests {
     @Test
     public void testInsertAll() { // 627 100게시물, 3개의 파일 추가, 5의 배수는 첨부 없음
 
+        List<Board> boards = new ArrayList<>();
+
         for (int i = 1; i <= 100; i++) {
 
             Board board  = Board.builder()
@@ -298,9 +301,11 @@ public class BoardRepositoryTests {
                 }
                 board.addImage(UUID.randomUUID().toString(),i+"file"+j+".jpg");
             }
-            boardRepository.save(board);
+            boards.add(board);
 
         }//end for
+
+        boardRepository.saveAll(boards); // 게시물과 첨부파일 insert를 각각 묶어서 실행
     }
 
     @Transactional
@@ -0,0 +1,53 @@
+package org.zerock.b01.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import org.zerock.b01.domain.UploadFile;
+import org.zerock.b01.support.TimeOrderedUuid;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@SpringBootTest
+@Log4j2
+public class UploadFileRepositoryTests {
+
+    @Autowired
+    private UploadFileRepository uploadFileRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @Transactional // 테스트 후 롤백
+    public void testFindOrphans() {
+
+        UUID uuid = TimeOrderedUuid.next();
+
+        uploadFileRepository.saveAndFlush(UploadFile.builder().uuid(uuid).hash("0".repeat(64)).fileName("orphan.jpg").build());
+
+        // 유예 기간(24h)보다 오래된 업로드로 만든다.
+        LocalDateTime uploaded = LocalDateTime.now().minusDays(2);
+
+        entityManager.createQuery("update UploadFile f set f.regDate = :regDate where f.uuid = :uuid")
+                .setParameter("regDate", uploaded)
+                .setParameter("uuid", uuid)
+                .executeUpdate();
+
+        LocalDateTime before = LocalDateTime.now().minusHours(24);
+
+        List<UploadFile> orphans = uploadFileRepository.findOrphans(
+                new UUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits() - 1), before, PageRequest.of(0, 10));
+
+        log.info(orphans);
+
+        Assertions.assertTrue(orphans.stream().anyMatch(file -> file.getUuid().equals(uuid)));
+    }
+}
@@ -0,0 +1,48 @@
+package org.zerock.b01.repository.search;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+@SpringBootTest
+@Log4j2
+public class BoardTextIndexTests {
+
+    @Autowired
+    private BoardTextIndex boardTextIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testCatchUpExternalInsert() {
+
+        String title = "external " + UUID.randomUUID().toString().substring(0, 8);
+
+        // 서비스를 거치지 않은 insert (moddate는 칼럼 기본값)
+        Long bno = jdbcTemplate.queryForObject("select nextval(board_seq)", Long.class);
+
+        jdbcTemplate.update("insert into board (bno, title, content, writer, reply_count, regdate) " +
+                "values (?, ?, 'external content', 'user00', 0, now(6))", bno, title);
+
+        try {
+            boardTextIndex.flush(); // 주기 작업과 같다. (moddate 워터마크 이후의 게시물을 색인에 반영)
+
+            long[] matched = boardTextIndex.search(new String[]{"t"}, title);
+
+            log.info(bno + " " + Arrays.toString(matched));
+
+            Assertions.assertNotNull(matched);
+            Assertions.assertTrue(Arrays.stream(matched).anyMatch(value -> value == bno));
+
+        } finally {
+            jdbcTemplate.update("delete from board where bno = ?", bno);
+        }
+    }
+}
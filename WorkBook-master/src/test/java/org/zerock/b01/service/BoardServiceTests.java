@@ -1,6 +1,7 @@
 package org.zerock.b01.service;
 
 import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,8 +13,10 @@ import org.zerock.b01.domain.Board;
 import org.zerock.b01.dto.*;
 import org.zerock.b01.repository.BoardRepository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 
 @SpringBootTest
@@ -26,6 +29,9 @@ public class BoardServiceTests {
     @Autowired
     private BoardRepository boardRepository;
 
+    @Autowired
+    private ReplyService replyService;
+
     @Test
     public void testRegister() {
 
@@ -154,4 +160,71 @@ public class BoardServiceTests {
 
     }
 
+    @Test
+    public void testListWithCursor() {
+
+        PageRequestDTO pageRequestDTO = PageRequestDTO.builder()
+                .size(10)
+                .after(50L) // bno 50 보다 작은 게시물부터
+                .build();
+
+        PageResponseDTO<BoardListAllDTO> responseDTO = boardService.listWithCursor(pageRequestDTO);
+
+        responseDTO.getDtoList().forEach(dto -> log.info(dto.getBno() + ":" + dto.getTitle()));
+
+        log.info("prev: " + responseDTO.getPrevCursor() + ", next: " + responseDTO.getNextCursor());
+    }
+
+    @Test
+    public void testListCache() {
+
+        PageRequestDTO pageRequestDTO = PageRequestDTO.builder().page(1).size(10).build();
+
+        PageResponseDTO<BoardListAllDTO> first = boardService.listwithall(pageRequestDTO);
+        PageResponseDTO<BoardListAllDTO> second = boardService.listwithall(pageRequestDTO);
+
+        log.info("cached: " + (first == second)); // 같은 객체면 캐시에서 반환
+
+        // 새 게시물이 등록되면 검색 조건이 없는 목록은 무효화된다.
+        boardService.register(BoardDTO.builder().title("cache test").content("cache test").writer("user00").build());
+
+        PageResponseDTO<BoardListAllDTO> third = boardService.listwithall(pageRequestDTO);
+
+        log.info("after register cached: " + (second == third));
+    }
+
+    @Test
+    public void testRemoveAll() {
+
+        List<Long> bnos = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+
+            BoardDTO boardDTO = BoardDTO.builder().title("remove test " + i).content("remove test").writer("user00").build();
+            boardDTO.setFileNames(List.of(UUID.randomUUID() + "_remove" + i + ".jpg"));
+
+            Long bno = boardService.register(boardDTO);
+
+            replyService.register(ReplyDTO.builder().bno(bno).replyText("remove test").replyer("user00").build());
+
+            bnos.add(bno);
+        }
+
+        bnos.add(-1L); // 없는 게시물은 건너뛴다.
+
+        // 댓글 -> 첨부파일 -> 게시물 순서로 DELETE 문
+        int removed = boardService.removeAll(bnos);
+
+        log.info("removed: " + removed);
+
+        Assertions.assertEquals(3, removed);
+        Assertions.assertTrue(boardRepository.findAllById(bnos).isEmpty());
+    }
+
+    @Test
+    public void testRemoveNotFound() {
+
+        // 한 건 삭제는 없는 게시물이면 예외 (화면에는 오류 응답)
+        Assertions.assertThrows(NoSuchElementException.class, () -> boardService.remove(-1L));
+    }
 }
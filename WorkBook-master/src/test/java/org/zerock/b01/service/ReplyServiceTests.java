@@ -4,7 +4,15 @@ import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.zerock.b01.domain.Board;
+import org.zerock.b01.dto.PageRequestDTO;
+import org.zerock.b01.dto.PageResponseDTO;
+import org.zerock.b01.dto.ReplyBatchResultDTO;
 import org.zerock.b01.dto.ReplyDTO;
+import org.zerock.b01.repository.BoardRepository;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @SpringBootTest
 @Log4j2
@@ -13,6 +21,9 @@ public class ReplyServiceTests {
     @Autowired
     private ReplyService replyService;
 
+    @Autowired
+    private BoardRepository boardRepository;
+
     @Test
     public void testRegister(){
 
@@ -24,4 +35,66 @@ public class ReplyServiceTests {
         log.info(replyService.register(replyDTO));
     }
 
+    @Test
+    public void testReplyCount(){
+
+        Long bno = 100L;
+
+        long before = boardRepository.findById(bno).map(Board::getReplyCount).orElseThrow();
+
+        Long rno = replyService.register(ReplyDTO.builder()
+                .replyText("댓글 수 테스트")
+                .replyer("user01")
+                .bno(bno)
+                .build());
+
+        long registered = boardRepository.findById(bno).map(Board::getReplyCount).orElseThrow();
+
+        replyService.remove(rno);
+
+        long removed = boardRepository.findById(bno).map(Board::getReplyCount).orElseThrow();
+
+        log.info(before + " -> " + registered + " -> " + removed);
+    }
+
+    @Test
+    public void testRegisterAll(){
+
+        List<ReplyDTO> replyDTOList = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            replyDTOList.add(ReplyDTO.builder()
+                    .replyText("일괄 등록 " + i)
+                    .replyer("user01")
+                    .bno(100L)
+                    .build());
+        }
+        replyDTOList.add(ReplyDTO.builder().replyText("").replyer("user01").bno(100L).build()); // 검증 오류
+        replyDTOList.add(ReplyDTO.builder().replyText("없는 게시물").replyer("user01").bno(-1L).build());
+
+        List<ReplyBatchResultDTO> results = replyService.registerAll(replyDTOList);
+
+        results.forEach(log::info);
+    }
+
+    @Test
+    public void testListWithCursor(){
+
+        Long bno = 100L;
+
+        // 가장 최근 댓글부터 (최신 순)
+        PageResponseDTO<ReplyDTO> newest = replyService.getListOfBoardWithCursor(bno,
+                PageRequestDTO.builder().before(0L).size(5).build());
+
+        newest.getDtoList().forEach(log::info);
+        log.info("next(older): " + newest.getNextCursor() + " prev(newer): " + newest.getPrevCursor());
+
+        // 처음 댓글부터 (오래된 순)
+        PageResponseDTO<ReplyDTO> oldest = replyService.getListOfBoardWithCursor(bno,
+                PageRequestDTO.builder().after(0L).size(5).build());
+
+        oldest.getDtoList().forEach(log::info);
+        log.info("next(newer): " + oldest.getNextCursor() + " prev(older): " + oldest.getPrevCursor());
+    }
+
 }
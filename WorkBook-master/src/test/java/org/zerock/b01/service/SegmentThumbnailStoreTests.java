@@ -0,0 +1,163 @@
+package org.zerock.b01.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// 세그먼트 저장소 : 저장/조회/삭제, 다시 시작했을 때 색인 복구, 정리(compaction) 후에도 같은 내용인지 (DB 필요 없음)
+@Log4j2
+public class SegmentThumbnailStoreTests {
+
+    @TempDir
+    Path base;
+
+    private SegmentThumbnailStore open() throws IOException {
+        return new SegmentThumbnailStore(new UploadStorage(base.toString()), base.resolve("thumbnails").toString(),
+                DataSize.ofKilobytes(8), 0.5, new SimpleMeterRegistry());
+    }
+
+    private Path image(int seed) throws IOException {
+
+        byte[] bytes = new byte[1500];
+        Arrays.fill(bytes, (byte) seed);
+
+        return Files.write(base.resolve("tmp_" + seed), bytes);
+    }
+
+    private static byte[] bytes(ThumbnailStore.Thumbnail thumbnail) {
+
+        ByteBuffer data = thumbnail.data();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+
+        return bytes;
+    }
+
+    @Test
+    public void testPutGetDelete() throws IOException {
+
+        SegmentThumbnailStore store = open();
+
+        store.put("a.jpg", image(1));
+        store.put("b.jpg", image(2));
+
+        Assertions.assertTrue(store.exists("a.jpg"));
+        Assertions.assertArrayEquals(Files.readAllBytes(image(2)), bytes(store.get("b.jpg")));
+
+        Assertions.assertEquals(1500, store.delete("a.jpg"));
+        Assertions.assertNull(store.get("a.jpg"));
+        Assertions.assertEquals(0, store.delete("a.jpg"));
+    }
+
+    @Test
+    public void testReload() throws IOException {
+
+        SegmentThumbnailStore store = open();
+
+        for (int i = 0; i < 10; i++) { // 세그먼트 여러 개
+            store.put(i + ".jpg", image(i));
+        }
+        store.delete("3.jpg");
+        store.put("5.jpg", image(50));
+        store.flush();
+
+        SegmentThumbnailStore reloaded = open();
+
+        Assertions.assertNull(reloaded.get("3.jpg"));
+        Assertions.assertArrayEquals(Files.readAllBytes(image(50)), bytes(reloaded.get("5.jpg")));
+        Assertions.assertArrayEquals(Files.readAllBytes(image(9)), bytes(reloaded.get("9.jpg")));
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+
+        SegmentThumbnailStore store = open();
+
+        for (int i = 0; i < 12; i++) {
+            store.put(i + ".jpg", image(i));
+        }
+        for (int i = 0; i < 8; i++) {
+            store.delete(i + ".jpg");
+        }
+
+        long before;
+        try (var files = Files.list(base.resolve("thumbnails"))) {
+            before = files.count();
+        }
+
+        store.compact();
+        store.flush();
+
+        long after;
+        try (var files = Files.list(base.resolve("thumbnails"))) {
+            after = files.count();
+        }
+
+        log.info("segments " + before + " -> " + after);
+
+        Assertions.assertTrue(after < before);
+
+        SegmentThumbnailStore reloaded = open();
+
+        for (int i = 0; i < 12; i++) {
+            if (i < 8) {
+                Assertions.assertNull(reloaded.get(i + ".jpg"));
+            } else {
+                Assertions.assertArrayEquals(Files.readAllBytes(image(i)), bytes(reloaded.get(i + ".jpg")));
+            }
+        }
+    }
+
+    @Test
+    public void testCompactKeepsTombstoneForOlderSegment() throws IOException {
+
+        SegmentThumbnailStore store = open(); // 8KB 세그먼트에 레코드(1530바이트) 5개
+
+        // segment 1 : k0(이전 내용) + 살아 있는 섬네일 4개 -> 정리 대상이 아니다.
+        store.put("k0.jpg", image(0));
+        for (int i = 1; i <= 4; i++) {
+            store.put("a" + i + ".jpg", image(i));
+        }
+
+        // segment 2 : k0(새 내용) + 나중에 삭제할 섬네일 4개
+        store.put("k0.jpg", image(10));
+        for (int i = 1; i <= 4; i++) {
+            store.put("c" + i + ".jpg", image(20 + i));
+        }
+
+        // segment 3 : k0 삭제 레코드(segment 2를 가리킴) 포함, 모두 버려진 공간
+        store.put("d1.jpg", image(30));
+        store.delete("k0.jpg");
+        for (int i = 1; i <= 4; i++) {
+            store.delete("c" + i + ".jpg");
+        }
+        store.delete("d1.jpg");
+        for (int i = 1; i <= 4; i++) {
+            store.put("e" + i + ".jpg", image(40 + i));
+        }
+        for (int i = 1; i <= 4; i++) {
+            store.delete("e" + i + ".jpg");
+        }
+
+        store.put("f1.jpg", image(50)); // segment 4 (쓰기 중)
+
+        // segment 2, 3 이 정리되어도 segment 1 의 이전 k0 가 다시 살아나면 안 된다.
+        store.compact();
+        store.flush();
+
+        SegmentThumbnailStore reloaded = open();
+
+        Assertions.assertNull(reloaded.get("k0.jpg"));
+        Assertions.assertArrayEquals(Files.readAllBytes(image(1)), bytes(reloaded.get("a1.jpg")));
+        Assertions.assertArrayEquals(Files.readAllBytes(image(50)), bytes(reloaded.get("f1.jpg")));
+    }
+}
@@ -0,0 +1,56 @@
+package org.zerock.b01.support;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+// 시간 순서 UUID : 버전/variant, 여러 스레드에서 만들어도 중복 없음, BINARY(16) 바이트 순서 = 생성 순서 (DB 필요 없음)
+@Log4j2
+public class TimeOrderedUuidTests {
+
+    private static byte[] bytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    @Test
+    public void testVersion() {
+
+        UUID uuid = TimeOrderedUuid.next();
+
+        log.info(uuid);
+
+        Assertions.assertEquals(7, uuid.version());
+        Assertions.assertEquals(2, uuid.variant());
+        Assertions.assertEquals(uuid, UUID.fromString(uuid.toString())); // uuid_원본이름 형식 그대로
+    }
+
+    @Test
+    public void testOrder() {
+
+        byte[] previous = bytes(TimeOrderedUuid.next());
+
+        for (int i = 0; i < 100_000; i++) { // 한 밀리초에 4096개가 넘는 경우 포함
+            byte[] current = bytes(TimeOrderedUuid.next());
+            Assertions.assertTrue(Arrays.compareUnsigned(previous, current) < 0);
+            previous = current;
+        }
+    }
+
+    @Test
+    public void testConcurrent() {
+
+        Set<UUID> uuids = IntStream.range(0, 200_000).parallel()
+                .mapToObj(i -> TimeOrderedUuid.next())
+                .collect(HashSet::new, Set::add, Set::addAll);
+
+        Assertions.assertEquals(200_000, uuids.size());
+    }
+}